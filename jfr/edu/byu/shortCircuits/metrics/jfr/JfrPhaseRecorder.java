@@ -0,0 +1,37 @@
+package edu.byu.shortCircuits.metrics.jfr;
+
+import edu.byu.shortCircuits.metrics.PhaseRecorder;
+import edu.byu.shortCircuits.metrics.ShortMetrics;
+
+/**
+ * Records the phases of the short pipeline as JFR events. Loaded by ShortMetrics when the JVM supports JFR.
+ */
+public class JfrPhaseRecorder implements PhaseRecorder
+{
+    @Override
+    public Object begin(ShortMetrics.Phase phase)
+    {
+        ShortPhaseEvent event = new ShortPhaseEvent();
+        if (!event.isEnabled())
+            return null;
+        event.phase = phase.name();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void end(Object recording, ShortMetrics metrics)
+    {
+        ShortPhaseEvent event = (ShortPhaseEvent) recording;
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.shortsPlaced = metrics.get(ShortMetrics.Counter.SHORTS_PLACED);
+        event.shortsRouted = metrics.get(ShortMetrics.Counter.SHORTS_ROUTED);
+        event.routeFailures = metrics.get(ShortMetrics.Counter.ROUTE_FAILURES);
+        event.candidatesExamined = metrics.get(ShortMetrics.Counter.CANDIDATES_EXAMINED);
+        event.lutsConsumed = metrics.get(ShortMetrics.Counter.LUTS_CONSUMED);
+        event.usedWires = metrics.getUsedWireCount();
+        event.commit();
+    }
+}
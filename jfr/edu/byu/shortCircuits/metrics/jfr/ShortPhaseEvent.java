@@ -0,0 +1,36 @@
+package edu.byu.shortCircuits.metrics.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event for one phase of the short pipeline. The counters are the totals of the ShortedDesign at the end of the
+ * phase.
+ */
+@Name("edu.byu.shortCircuits.Phase")
+@Label("Short Pipeline Phase")
+@Category("Short Circuits")
+@Threshold("1 ms")
+@StackTrace(false)
+class ShortPhaseEvent extends Event
+{
+    @Label("Phase")
+    String phase;
+
+    @Label("Shorts Placed")
+    long shortsPlaced;
+
+    @Label("Shorts Routed")
+    long shortsRouted;
+
+    @Label("Route Failures")
+    long routeFailures;
+
+    @Label("Candidates Examined")
+    long candidatesExamined;
+
+    @Label("LUTs Consumed")
+    long lutsConsumed;
+
+    @Label("Used Wires")
+    long usedWires;
+}
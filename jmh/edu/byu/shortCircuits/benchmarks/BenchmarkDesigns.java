@@ -0,0 +1,67 @@
+package edu.byu.shortCircuits.benchmarks;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Site;
+import edu.byu.shortCircuits.rapidWrightTools.SiteGrid;
+import edu.byu.shortCircuits.shorts.ShortedDesign;
+
+/**
+ * Designs and sites shared by the benchmarks. All benchmarks target the ARTY A7-35t.
+ */
+final class BenchmarkDesigns
+{
+    static final String PART = "xc7a35ticsg324-1L";
+
+    // The top half of the xc7a35t, as used by the examples
+    static final int X_MIN = 0;
+    static final int X_MAX = 65;
+    static final int Y_MIN = 75;
+    static final int Y_MAX = 149;
+
+    static final int SHORT_CIRCUIT_DENSITY = 2;
+
+    private BenchmarkDesigns() {}
+
+    /**
+     * @return a new empty design
+     */
+    static Design createDesign()
+    {
+        return new Design("benchmark", PART);
+    }
+
+    /**
+     * @return a new design with a routed region of shorts in the top half of the device
+     */
+    static Design createShortedDesign()
+    {
+        Design d = createDesign();
+        ShortedDesign sd = new ShortedDesign(d);
+        sd.createShortedRegion(X_MIN, X_MAX, Y_MIN, Y_MAX, SHORT_CIRCUIT_DENSITY);
+        return d;
+    }
+
+    /**
+     * Gets the first logic sites of the device, starting at the bottom left corner and going row by row.
+     * @param device the device
+     * @param count how many sites to get
+     * @return the sites
+     */
+    static Site[] getSites(Device device, int count)
+    {
+        SiteGrid grid = SiteGrid.get(device);
+        Site[] sites = new Site[count];
+        int i = 0;
+        for (int y = 0; y < grid.getHeight() && i < count; y++)
+        {
+            for (int x = 0; x < grid.getWidth() && i < count; x++)
+            {
+                Site site = grid.getSite(x, y);
+                if (site != null)
+                    sites[i++] = site;
+            }
+        }
+        return sites;
+    }
+}
@@ -0,0 +1,42 @@
+package edu.byu.shortCircuits.benchmarks;
+
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Site;
+import edu.byu.shortCircuits.rapidWrightTools.RapidWrightTools;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the device queries in RapidWrightTools.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RapidWrightToolsBenchmark
+{
+    private Device device;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        device = BenchmarkDesigns.createDesign().getDevice();
+    }
+
+    @Benchmark
+    public ArrayList<Site> getLogicSitesInSmallRange()
+    {
+        return RapidWrightTools.getLogicSitesInRange(device, 10, 19, 10, 19);
+    }
+
+    @Benchmark
+    public ArrayList<Site> getLogicSitesInTopHalf()
+    {
+        return RapidWrightTools.getLogicSitesInRange(device, BenchmarkDesigns.X_MIN, BenchmarkDesigns.X_MAX,
+                BenchmarkDesigns.Y_MIN, BenchmarkDesigns.Y_MAX);
+    }
+}
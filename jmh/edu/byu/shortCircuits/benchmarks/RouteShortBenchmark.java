@@ -0,0 +1,55 @@
+package edu.byu.shortCircuits.benchmarks;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.device.Site;
+import edu.byu.shortCircuits.shorts.ShortedDesign;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks routing shorts that have already been placed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class RouteShortBenchmark
+{
+    private static final int SITES = 100;
+    private static final int SHORTS = SITES * 4;
+
+    private Site[] sites;
+    private ShortedDesign sd;
+
+    @Setup(Level.Trial)
+    public void setupSites()
+    {
+        sites = BenchmarkDesigns.getSites(BenchmarkDesigns.createDesign().getDevice(), SITES);
+    }
+
+    @Setup(Level.Invocation)
+    public void placeShorts()
+    {
+        Design d = BenchmarkDesigns.createDesign();
+        sd = new ShortedDesign(d);
+        for (Site site : sites)
+            sd.placeShortedSite(site.getInstanceX(), site.getInstanceY());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SHORTS)
+    public void routeShorts()
+    {
+        sd.routeShorts(BenchmarkDesigns.SHORT_CIRCUIT_DENSITY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SHORTS)
+    public void routeShortsParallel()
+    {
+        sd.routeShortsParallel(BenchmarkDesigns.SHORT_CIRCUIT_DENSITY);
+    }
+}
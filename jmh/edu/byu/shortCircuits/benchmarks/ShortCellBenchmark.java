@@ -0,0 +1,83 @@
+package edu.byu.shortCircuits.benchmarks;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.device.Site;
+import edu.byu.shortCircuits.shorts.LogicValue;
+import edu.byu.shortCircuits.shorts.ShortCell;
+import edu.byu.shortCircuits.shorts.ShortTools;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks creating and placing ShortCells and finding the shorts between two of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShortCellBenchmark
+{
+    private static final int SITES = 100;
+
+    /**
+     * A fresh design for every invocation, so that cells can be placed on the same sites again.
+     */
+    @State(Scope.Thread)
+    public static class EmptyDesign
+    {
+        Design d;
+        Site[] sites;
+
+        @Setup(Level.Trial)
+        public void setupSites()
+        {
+            sites = BenchmarkDesigns.getSites(BenchmarkDesigns.createDesign().getDevice(), SITES);
+        }
+
+        @Setup(Level.Invocation)
+        public void setupDesign()
+        {
+            d = BenchmarkDesigns.createDesign();
+        }
+    }
+
+    /**
+     * A placed LUT and FF in the same site.
+     */
+    @State(Scope.Thread)
+    public static class PlacedCells
+    {
+        ShortCell lut;
+        ShortCell ff;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            Design d = BenchmarkDesigns.createDesign();
+            Site site = BenchmarkDesigns.getSites(d.getDevice(), 1)[0];
+            lut = new ShortCell(d, site, site.getBEL("A6LUT"), LogicValue.LOW);
+            ff = new ShortCell(d, site, site.getBEL("AFF"), LogicValue.HIGH);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * SITES)
+    public void createShortCells(EmptyDesign state, Blackhole bh)
+    {
+        for (Site site : state.sites)
+        {
+            bh.consume(new ShortCell(state.d, site, site.getBEL("A6LUT"), LogicValue.LOW));
+            bh.consume(new ShortCell(state.d, site, site.getBEL("AFF"), LogicValue.HIGH));
+        }
+    }
+
+    @Benchmark
+    public ArrayList<String> findShorts(PlacedCells state)
+    {
+        return ShortTools.findShorts(state.lut, state.ff, true);
+    }
+}
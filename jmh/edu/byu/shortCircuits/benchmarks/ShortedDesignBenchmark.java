@@ -0,0 +1,85 @@
+package edu.byu.shortCircuits.benchmarks;
+
+import com.xilinx.rapidwright.design.Design;
+import edu.byu.shortCircuits.rapidWrightTools.RapidWrightTools;
+import edu.byu.shortCircuits.rapidWrightTools.SiteGrid;
+import edu.byu.shortCircuits.shorts.Short;
+import edu.byu.shortCircuits.shorts.ShortedDesign;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the parts of short generation that depend on the size of the design: creating a ShortedDesign on top of
+ * a routed design, counting its LUTs and filling part of the device with shorts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShortedDesignBenchmark
+{
+    /**
+     * A design with a routed region of shorts in the top half of the device.
+     */
+    @State(Scope.Benchmark)
+    public static class RoutedDesign
+    {
+        Design d;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            d = BenchmarkDesigns.createShortedDesign();
+        }
+    }
+
+    /**
+     * A fresh design for every invocation, and the rows of the device that make up the requested percentage of it.
+     */
+    @State(Scope.Thread)
+    public static class EmptyDesign
+    {
+        @Param({"1", "10", "100"})
+        int percent;
+
+        int xMax;
+        int yMax;
+        ShortedDesign sd;
+
+        @Setup(Level.Trial)
+        public void setupRegion()
+        {
+            SiteGrid grid = SiteGrid.get(BenchmarkDesigns.createDesign().getDevice());
+            xMax = grid.getWidth() - 1;
+            yMax = Math.max(1, grid.getHeight() * percent / 100) - 1;
+        }
+
+        @Setup(Level.Invocation)
+        public void setupDesign()
+        {
+            sd = new ShortedDesign(BenchmarkDesigns.createDesign());
+        }
+    }
+
+    @Benchmark
+    public ShortedDesign createShortedDesign(RoutedDesign state)
+    {
+        return new ShortedDesign(state.d);
+    }
+
+    @Benchmark
+    public int countLut6(RoutedDesign state)
+    {
+        return RapidWrightTools.countLut6(state.d);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public List<Short> createShortedRegion(EmptyDesign state)
+    {
+        return state.sd.createShortedRegion(0, state.xMax, 0, state.yMax, BenchmarkDesigns.SHORT_CIRCUIT_DENSITY);
+    }
+}
@@ -0,0 +1,194 @@
+package edu.byu.shortCircuits.examples.BatchShortedDesigns;
+
+import edu.byu.shortCircuits.metrics.ShortMetrics.Phase;
+import edu.byu.shortCircuits.rapidWrightTools.SiteGrid;
+import edu.byu.shortCircuits.rapidWrightTools.SiteRegion;
+import edu.byu.shortCircuits.shorts.ShortManifest;
+import edu.byu.shortCircuits.shorts.ShortedDesign;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.device.Device;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Example that creates many shorted designs in one JVM. The device is loaded once and every job reuses it, so only
+ * the first job pays for loading the device files and warming up the JIT.
+ *
+ * The jobs are read from a text file with one job per line: the output checkpoint, how many short circuits to create
+ * for each LUT-FF pair and the region to short as pblock ranges (see SiteRegion.addPblock). Ranges starting with ! are
+ * excluded from the region. Lines starting with # are ignored.
+ *
+ * <pre>
+ *   # output          density  region
+ *   top_half.dcp      2        SLICE_X0Y75:SLICE_X65Y149
+ *   x1y2_sparse.dcp   1        CLOCKREGION_X1Y2 !SLICE_X10Y100:SLICE_X13Y110
+ * </pre>
+ *
+ * Usage: BatchShortedDesigns jobs.txt [threads]. With more than one thread, that many jobs are run at the same time.
+ */
+public class BatchShortedDesigns
+{
+    private final static String CHECKPOINT_DIR = "checkpoints";
+
+    private final static String PART = "xc7a35ticsg324-1L";
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: BatchShortedDesigns <jobs file> [threads]");
+            return;
+        }
+        List<Job> jobs = readJobs(args[0]);
+        int threads = args.length == 2 ? Integer.parseInt(args[1]) : 1;
+
+        // RapidWright keeps every device it loads, so each Design created for this part below reuses this one
+        long start = System.nanoTime();
+        Device device = Device.getDevice(PART);
+        SiteGrid.get(device);
+        System.out.printf("Loaded %s in %.2fs%n", device.getName(), seconds(System.nanoTime() - start));
+
+        new File(CHECKPOINT_DIR).mkdir();
+        List<Result> results = threads > 1 ? runConcurrently(jobs, threads) : runSerially(jobs);
+
+        System.out.printf("%n%-30s %10s %10s %10s %10s%n", "job", "shorts", "place(s)", "route(s)", "total(s)");
+        for (Result result : results) {
+            if (result.error != null)
+                System.out.printf("%-30s FAILED: %s%n", result.job.name, result.error);
+            else
+                System.out.printf("%-30s %10d %10.2f %10.2f %10.2f%n", result.job.name, result.shortCount,
+                        seconds(result.placementNanos), seconds(result.routingNanos), seconds(result.totalNanos));
+        }
+        System.out.printf("%d jobs in %.2fs%n", jobs.size(), seconds(System.nanoTime() - start));
+    }
+
+    private static List<Result> runSerially(List<Job> jobs) {
+        List<Result> results = new ArrayList<>(jobs.size());
+        for (Job job : jobs)
+            results.add(run(job));
+        return results;
+    }
+
+    private static List<Result> runConcurrently(List<Job> jobs, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(jobs.size());
+            for (Job job : jobs)
+                futures.add(executor.submit(() -> run(job)));
+
+            List<Result> results = new ArrayList<>(jobs.size());
+            for (Future<Result> future : futures)
+                results.add(future.get());
+            return results;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error! Could not run the jobs", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates, shorts and writes the design of one job. A job that fails is reported and doesn't stop the others.
+     */
+    private static Result run(Job job) {
+        long start = System.nanoTime();
+        try {
+            Design d = new Design(job.name, PART);
+            ShortedDesign sd = new ShortedDesign(d);
+            int shortCount = sd.createShortedRegion(job.region, job.density, s -> {});
+
+            d.writeCheckpoint(job.output);
+            // Write the shorts next to the checkpoint so they can be reattached with ShortedDesign.loadShortManifest
+            sd.writeShortManifest(ShortManifest.getManifestPath(job.output));
+
+            long totalNanos = System.nanoTime() - start;
+            System.out.printf("%s: %d shorts in %.2fs%n", job.name, shortCount, seconds(totalNanos));
+            return new Result(job, shortCount, sd.getMetrics().getPhaseNanos(Phase.PLACEMENT),
+                    sd.getMetrics().getPhaseNanos(Phase.ROUTING), totalNanos, null);
+        } catch (RuntimeException e) {
+            System.out.println(job.name + ": FAILED (" + e.getMessage() + ")");
+            return new Result(job, 0, 0, 0, System.nanoTime() - start, e.getMessage());
+        }
+    }
+
+    private static List<Job> readJobs(String path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(path));
+        } catch (IOException e) {
+            throw new RuntimeException("Error! Could not read the jobs in " + path, e);
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            String[] fields = line.split("\\s+");
+            if (fields.length < 3)
+                throw new RuntimeException("ERROR: Line " + (i + 1) + " of " + path
+                        + " must have an output, a density and a region");
+
+            SiteRegion region = new SiteRegion();
+            for (int f = 2; f < fields.length; f++) {
+                if (fields[f].startsWith("!"))
+                    region.excludePblock(fields[f].substring(1));
+                else
+                    region.addPblock(fields[f]);
+            }
+
+            String output = new File(fields[0]).isAbsolute() ? fields[0] : CHECKPOINT_DIR + "/" + fields[0];
+            jobs.add(new Job(output, Integer.parseInt(fields[1]), region));
+        }
+        return jobs;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static class Job
+    {
+        private final String name;
+        private final String output;
+        private final int density;
+        private final SiteRegion region;
+
+        private Job(String output, int density, SiteRegion region) {
+            String fileName = new File(output).getName();
+            this.name = fileName.endsWith(".dcp") ? fileName.substring(0, fileName.length() - 4) : fileName;
+            this.output = output;
+            this.density = density;
+            this.region = region;
+        }
+    }
+
+    private static class Result
+    {
+        private final Job job;
+        private final int shortCount;
+        private final long placementNanos;
+        private final long routingNanos;
+        private final long totalNanos;
+        private final String error;
+
+        private Result(Job job, int shortCount, long placementNanos, long routingNanos, long totalNanos,
+                       String error) {
+            this.job = job;
+            this.shortCount = shortCount;
+            this.placementNanos = placementNanos;
+            this.routingNanos = routingNanos;
+            this.totalNanos = totalNanos;
+            this.error = error;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package edu.byu.shortCircuits.examples.ManualShortedDesign;
 
+import edu.byu.shortCircuits.rapidWrightTools.SiteGrid;
 import edu.byu.shortCircuits.shorts.ShortedDesign;
 
 import com.xilinx.rapidwright.device.Site;
@@ -29,18 +30,19 @@ public class ManualShortedDesign
     public static void main(String[] args) {
         Design d = new Design("Shorts", PART);
         ShortedDesign sd = new ShortedDesign(d);
+        SiteGrid grid = SiteGrid.get(d.getDevice());
 
         // place short circuits on the top half of the FPGA.
         for (int y = Y_MAX; y >= Y_MIN; y--) {
             for (int x = X_MIN; x < X_MAX; x+=2) {
-                Site site = d.getDevice().getSite(String.format("SLICE_X%dY%d", x, y));
+                Site site = grid.getSite(x, y);
                 if (site != null)                    
                     sd.placeShortedSite(x, y); //place shorts on a logic site
             }
         }
 
-        // Must call this to route shorts after they have all been placed.
-        sd.routeShorts(SHORT_CIRCUIT_DENSITY); 
+        // Must call this to route shorts after they have all been placed. Shorts are routed on all available cores.
+        sd.routeShortsParallel(SHORT_CIRCUIT_DENSITY);
 
         new File(CHECKPOINT_DIR).mkdir();
         d.writeCheckpoint(CHECKPOINT_DIR + "/" + FILE_NAME);
@@ -1,5 +1,6 @@
 package edu.byu.shortCircuits.examples.SimpleShortedDesign;
 
+import edu.byu.shortCircuits.shorts.ShortManifest;
 import edu.byu.shortCircuits.shorts.ShortedDesign;
 
 import com.xilinx.rapidwright.design.Design;
@@ -35,5 +36,8 @@ public class SimpleShortedDesign
 
         new File(CHECKPOINT_DIR).mkdir();
         d.writeCheckpoint(CHECKPOINT_DIR + "/" + FILE_NAME);
+
+        // Write the shorts next to the checkpoint so they can be reattached with ShortedDesign.loadShortManifest
+        sd.writeShortManifest(ShortManifest.getManifestPath(CHECKPOINT_DIR + "/" + FILE_NAME));
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package edu.byu.shortCircuits.metrics;
+
+/**
+ * Records the phases timed by ShortMetrics outside of the JVM (e.g. as JDK Flight Recorder events).
+ */
+public interface PhaseRecorder
+{
+    /**
+     * Called when a phase starts
+     * @param phase the phase
+     * @return the recording of the phase, or null if the phase isn't being recorded
+     */
+    Object begin(ShortMetrics.Phase phase);
+
+    /**
+     * Called when a phase ends
+     * @param recording the recording returned by begin
+     * @param metrics the metrics the phase was timed with
+     */
+    void end(Object recording, ShortMetrics metrics);
+}
@@ -0,0 +1,232 @@
+package edu.byu.shortCircuits.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps track of where the short pipeline spends its time: how long each phase takes and how many shorts were placed,
+ * routed or could not be routed. The counters can be updated from several threads at once.
+ *
+ * When the JVM supports JDK Flight Recorder (and the jfr classes are on the classpath), every phase timed with time
+ * is also recorded as a JFR event (edu.byu.shortCircuits.Phase). Only bulk operations (a region, a batch of routes,
+ * a scan of the design) are timed that way. Placing or routing a single short only adds to the phase totals (see
+ * addPhaseTime), so there isn't an event for every short. Set the shortCircuits.jfr system property to false to turn
+ * the events off.
+ */
+public class ShortMetrics
+{
+    private static final PhaseRecorder RECORDER = loadRecorder();
+
+    /**
+     * The timed phases of the pipeline. Phases can be nested (e.g. a REGION contains the PLACEMENT and ROUTING of
+     * its shorts), so their times don't add up to the total run time.
+     */
+    public enum Phase
+    {
+        /** counting the LUTs and FFs already used in the design */
+        RESOURCE_COUNT,
+        /** scanning the nets of a design for the wires they use */
+        USED_WIRE_SCAN,
+        /** planning the BELs and routes of shorts from device data, without changing the design */
+        PLANNING,
+        /** placing the cells and creating the nets of shorts */
+        PLACEMENT,
+        /** finding and committing the routes of shorts */
+        ROUTING,
+        /** connecting the short LUTs to their config nets */
+        CONFIG,
+        /** creating a whole region of shorts */
+        REGION
+    }
+
+    /**
+     * The counted events of the pipeline
+     */
+    public enum Counter
+    {
+        SHORTS_PLACED,
+        SHORTS_ROUTED,
+        ROUTE_FAILURES,
+        /** candidate shorting PIP pairs checked against the used wires */
+        CANDIDATES_EXAMINED,
+        /** LUTs used by the placed shorts */
+        LUTS_CONSUMED
+    }
+
+    private final LongAdder[] phaseNanos = newAdders(Phase.values().length);
+    private final LongAdder[] phaseCounts = newAdders(Phase.values().length);
+    private final LongAdder[] counters = newAdders(Counter.values().length);
+    private final LongSupplier usedWireCount;
+
+    /**
+     * Creates metrics without a used wire count
+     */
+    public ShortMetrics()
+    {
+        this(() -> 0);
+    }
+
+    /**
+     * Creates metrics
+     * @param usedWireCount gets the current size of the used wire set
+     */
+    public ShortMetrics(LongSupplier usedWireCount)
+    {
+        this.usedWireCount = usedWireCount;
+    }
+
+    private static LongAdder[] newAdders(int size)
+    {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+    /**
+     * Loads the JFR recorder if the JVM supports it. The recorder is compiled separately (for Java 11), so it is
+     * looked up by name and the metrics still work on JVMs without JFR.
+     */
+    private static PhaseRecorder loadRecorder()
+    {
+        if (!Boolean.parseBoolean(System.getProperty("shortCircuits.jfr", "true")))
+            return null;
+        try
+        {
+            Class.forName("jdk.jfr.Event");
+            return (PhaseRecorder) Class.forName("edu.byu.shortCircuits.metrics.jfr.JfrPhaseRecorder")
+                    .getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError | ClassCastException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if phases are recorded as JFR events
+     */
+    public static boolean isRecordingEvents() { return RECORDER != null; }
+
+    /**
+     * Starts timing a phase. The phase ends when the timer is closed, so it should be used in a try-with-resources
+     * block.
+     * @param phase the phase
+     * @return the timer of the phase
+     */
+    public Timer time(Phase phase)
+    {
+        return new Timer(phase);
+    }
+
+    /**
+     * Adds one run of a phase that was timed by the caller, without recording a JFR event. Meant for the small steps
+     * that are repeated for every short, e.g. placing or routing one short.
+     * @param phase the phase
+     * @param nanos how long the run took in nanoseconds
+     */
+    public void addPhaseTime(Phase phase, long nanos)
+    {
+        phaseNanos[phase.ordinal()].add(nanos);
+        phaseCounts[phase.ordinal()].increment();
+    }
+
+    public void increment(Counter counter)
+    {
+        counters[counter.ordinal()].increment();
+    }
+
+    public void add(Counter counter, long amount)
+    {
+        counters[counter.ordinal()].add(amount);
+    }
+
+    public long get(Counter counter)
+    {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * @param phase the phase
+     * @return the total time spent in the phase in nanoseconds
+     */
+    public long getPhaseNanos(Phase phase)
+    {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * @param phase the phase
+     * @return how many times the phase has been timed
+     */
+    public long getPhaseCount(Phase phase)
+    {
+        return phaseCounts[phase.ordinal()].sum();
+    }
+
+    /**
+     * @return the current size of the used wire set
+     */
+    public long getUsedWireCount()
+    {
+        return usedWireCount.getAsLong();
+    }
+
+    /**
+     * Clears all of the phase times and counters
+     */
+    public void reset()
+    {
+        for (LongAdder adder : phaseNanos)
+            adder.reset();
+        for (LongAdder adder : phaseCounts)
+            adder.reset();
+        for (LongAdder adder : counters)
+            adder.reset();
+    }
+
+    /**
+     * @return a summary of the phase times and counters, one per line
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : Phase.values())
+        {
+            long count = getPhaseCount(phase);
+            if (count == 0)
+                continue;
+            sb.append(String.format("%-16s %10.1f ms (%d)%n", phase, getPhaseNanos(phase) / 1e6, count));
+        }
+        for (Counter counter : Counter.values())
+            sb.append(String.format("%-20s %d%n", counter, get(counter)));
+        sb.append(String.format("%-20s %d%n", "USED_WIRES", getUsedWireCount()));
+        return sb.toString();
+    }
+
+    /**
+     * Times one run of a phase
+     */
+    public final class Timer implements AutoCloseable
+    {
+        private final Phase phase;
+        private final long start;
+        private final Object event;
+
+        private Timer(Phase phase)
+        {
+            this.phase = phase;
+            this.event = RECORDER != null ? RECORDER.begin(phase) : null;
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close()
+        {
+            addPhaseTime(phase, System.nanoTime() - start);
+            if (event != null)
+                RECORDER.end(event, ShortMetrics.this);
+        }
+    }
+}
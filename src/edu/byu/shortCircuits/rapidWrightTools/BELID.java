@@ -4,7 +4,7 @@ package edu.byu.shortCircuits.rapidWrightTools;
  * A enumeration for all of the prefixes a shortable BEL can have. These refer to the first Letter of the BEL name,
  * i.e. The C in C6LUT
  */
-public enum BELID
+public enum BELID implements LogicBELID
 {
     A("A"),
     B("B"),
@@ -0,0 +1,144 @@
+package edu.byu.shortCircuits.rapidWrightTools;
+
+import com.xilinx.rapidwright.device.ClockRegion;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Tile;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The logic tiles at the corners and center of a clock region. The geometry of a clock region is found the first time
+ * it is requested and cached by device and clock region name, so later queries don't have to scan the tiles of the
+ * clock region again.
+ */
+public class ClockRegionGeometry
+{
+    private static final Map<String, Map<String, ClockRegionGeometry>> geometries = new ConcurrentHashMap<>();
+
+    private final Tile upperLeft;
+    private final Tile lowerRight;
+    private final Tile center;
+
+    private ClockRegionGeometry(ClockRegion cr)
+    {
+        upperLeft = findUpperLeft(cr);
+        lowerRight = findLowerRight(cr);
+        if (upperLeft == null || lowerRight == null)
+        {
+            center = null;
+        }
+        else
+        {
+            // the center of a clock region has always been picked among the 7 series CLB tiles only
+            center = findCenter(cr.getDevice(), upperLeft.getColumn(), lowerRight.getColumn(), upperLeft.getRow(),
+                    lowerRight.getRow(), LogicTileClass.CLBL);
+        }
+    }
+
+    /**
+     * Gets the geometry of a clock region
+     * @param cr the clock region
+     * @return the geometry of the clock region
+     */
+    public static ClockRegionGeometry get(ClockRegion cr)
+    {
+        Map<String, ClockRegionGeometry> deviceGeometries = geometries.computeIfAbsent(cr.getDevice().getName(),
+                k -> new ConcurrentHashMap<>());
+        return deviceGeometries.computeIfAbsent(cr.getName(), k -> new ClockRegionGeometry(cr));
+    }
+
+    /**
+     * @return the first logic tile of the clock region (scanning rows from the top), or null if it has none
+     */
+    public Tile getUpperLeft() { return upperLeft; }
+
+    /**
+     * @return the last logic tile of the clock region (scanning rows from the bottom), or null if it has none
+     */
+    public Tile getLowerRight() { return lowerRight; }
+
+    /**
+     * @return the CLBL tile closest to the center of the logic tiles of the clock region, or null if there is none
+     */
+    public Tile getCenter() { return center; }
+
+    private static Tile findUpperLeft(ClockRegion cr)
+    {
+        Tile upperLeft = cr.getUpperLeft();
+        Tile lowerRight = cr.getLowerRight();
+        Device dev = cr.getDevice();
+
+        for (int y = upperLeft.getRow(); y <= lowerRight.getRow(); y++)
+        {
+            for (int x = upperLeft.getColumn(); x <= lowerRight.getColumn(); x++)
+            {
+                Tile tile = dev.getTile(y, x);
+                if (LogicTileClass.isLogic(tile))
+                    return tile;
+            }
+        }
+        return null;
+    }
+
+    private static Tile findLowerRight(ClockRegion cr)
+    {
+        Tile upperLeft = cr.getUpperLeft();
+        Tile lowerRight = cr.getLowerRight();
+        Device dev = cr.getDevice();
+
+        for (int y = lowerRight.getRow(); y >= upperLeft.getRow(); y--)
+        {
+            for (int x = lowerRight.getColumn(); x >= upperLeft.getColumn(); x--)
+            {
+                Tile tile = dev.getTile(y, x);
+                if (LogicTileClass.isLogic(tile))
+                    return tile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches outwards from the center of the box (in tile columns and rows) for a logic tile
+     * @param logicClass the class of tile to look for, or null for any logic tile
+     * @return the tile, or null if none was found
+     */
+    static Tile findCenter(Device dev, int xMin, int xMax, int yMin, int yMax, LogicTileClass logicClass)
+    {
+        int xCenter = (xMax + xMin)/2;
+        int yCenter = (yMax + yMin)/2;
+
+        for (int x = 0; x < (xMax - xMin)/2; x++)
+        {
+            for (int y = 0; y < (yMax - yMin)/2; y++)
+            {
+                Tile tile = dev.getTile(yCenter - y, xCenter + x);
+                if (matches(tile, logicClass))
+                    return tile;
+
+                tile = dev.getTile(yCenter + y, xCenter + x);
+                if (matches(tile, logicClass))
+                    return tile;
+            }
+
+            for (int y = 0; y < (yMax - yMin)/2; y++)
+            {
+                Tile tile = dev.getTile(yCenter - y, xCenter - x);
+                if (matches(tile, logicClass))
+                    return tile;
+
+                tile = dev.getTile(yCenter + y, xCenter - x);
+                if (matches(tile, logicClass))
+                    return tile;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(Tile tile, LogicTileClass logicClass)
+    {
+        LogicTileClass tileClass = LogicTileClass.of(tile.getTileTypeEnum());
+        return logicClass == null ? tileClass != LogicTileClass.NONE : tileClass == logicClass;
+    }
+}
@@ -0,0 +1,14 @@
+package edu.byu.shortCircuits.rapidWrightTools;
+
+/**
+ * A prefix of a shortable BEL within a logic site, i.e. The C in C6LUT. Implemented by BELID for 7 series slices (A-D)
+ * and by UltraBELID for UltraScale/UltraScale+ slices (A-H).
+ */
+public interface LogicBELID
+{
+    /**
+     * Returns the integer equivalent of the ID, starting at 0 with A and incrementing by one.
+     * @return the int equivalent of the ID
+     */
+    int toInt();
+}
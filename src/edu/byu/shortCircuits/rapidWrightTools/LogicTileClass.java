@@ -0,0 +1,65 @@
+package edu.byu.shortCircuits.rapidWrightTools;
+
+import com.xilinx.rapidwright.device.Tile;
+import com.xilinx.rapidwright.device.TileTypeEnum;
+
+/**
+ * Classifies tile types as 7 series logic tiles (CLBLL/CLBLM), UltraScale logic tiles (CLEL/CLEM) or neither. The
+ * class of every tile type is worked out once from its name and stored by ordinal, so checking a tile is a single
+ * array lookup instead of string matching.
+ */
+public enum LogicTileClass
+{
+    /** not a logic tile */
+    NONE,
+    /** 7 series CLB tile (CLBLL_L, CLBLM_R, ...) */
+    CLBL,
+    /** UltraScale/UltraScale+ CLE tile (CLEL_R, CLEM, ...) */
+    CLE;
+
+    private static final LogicTileClass[] classes = buildClasses();
+
+    private static LogicTileClass[] buildClasses()
+    {
+        TileTypeEnum[] types = TileTypeEnum.values();
+        LogicTileClass[] classes = new LogicTileClass[types.length];
+        for (TileTypeEnum type : types)
+        {
+            String name = type.name();
+            if (name.contains("CLBL"))
+                classes[type.ordinal()] = CLBL;
+            else if (name.contains("CLE"))
+                classes[type.ordinal()] = CLE;
+            else
+                classes[type.ordinal()] = NONE;
+        }
+        return classes;
+    }
+
+    /**
+     * @param type a tile type
+     * @return the logic class of the tile type
+     */
+    public static LogicTileClass of(TileTypeEnum type)
+    {
+        return classes[type.ordinal()];
+    }
+
+    /**
+     * @param tile a tile
+     * @return true if the tile is a CLBL or CLE tile
+     */
+    public static boolean isLogic(Tile tile)
+    {
+        return classes[tile.getTileTypeEnum().ordinal()] != NONE;
+    }
+
+    /**
+     * @param tile a tile
+     * @return true if the tile is a 7 series CLB tile
+     */
+    public static boolean isCLBL(Tile tile)
+    {
+        return classes[tile.getTileTypeEnum().ordinal()] == CLBL;
+    }
+}
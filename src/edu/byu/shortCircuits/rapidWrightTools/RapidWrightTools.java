@@ -7,8 +7,8 @@ import com.xilinx.rapidwright.edif.EDIFNet;
 import com.xilinx.rapidwright.edif.EDIFTools;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Convenient methods for RapidWright that may be helpful when creating designs that have RO or shorts
@@ -106,24 +106,38 @@ public class RapidWrightTools
      * @param xMax the maximum x-coordinate for the sites
      * @param yMin the minimum y-coordinate for the sites
      * @param yMax the maximum y-coordinate for the sites
-     * @return a list of logic sites (SLICEL and/or SLICEM) within the specified range
+     * @return a list of logic sites (SLICEL and/or SLICEM) within the specified range, in scanline order (by y, then
+     *         by x)
      */
     public static ArrayList<Site> getLogicSitesInRange(Device device, int xMin, int xMax, int yMin, int yMax)
     {
-        ArrayList<Site> sites = new ArrayList<>();
+        return SiteGrid.get(device).getSitesInRange(xMin, xMax, yMin, yMax);
+    }
 
-        // Concats two arrays by using the Stream class to create a single Stream that contains all SLICE_L and SLICE_M
-        // sites and then iterates through the string using the forEachOrdered method
-        Stream.concat(Arrays.stream(device.getAllSitesOfType(SiteTypeEnum.SLICEL)),
-                Arrays.stream(device.getAllSitesOfType(SiteTypeEnum.SLICEM))).forEachOrdered(site -> {
-            //checks to see if the site is within the specified range
-            if(site.getInstanceX() >= xMin && site.getInstanceX() <= xMax
-                    && site.getInstanceY() >= yMin && site.getInstanceY() <= yMax )
-            {
-                sites.add(site);
-            }
-        });
-        return sites;
+    /**
+     * Passes every logic site (SLICEL and/or SLICEM) within the specified range to the consumer without building a
+     * list
+     * @param device The device to be searched for sites
+     * @param xMin the minimum x-coordinate for the sites
+     * @param xMax the maximum x-coordinate for the sites
+     * @param yMin the minimum y-coordinate for the sites
+     * @param yMax the maximum y-coordinate for the sites
+     * @param consumer receives each site, in scanline order (by y, then by x)
+     */
+    public static void forEachLogicSiteInRange(Device device, int xMin, int xMax, int yMin, int yMax,
+                                               Consumer<Site> consumer)
+    {
+        SiteGrid.get(device).forEachSiteInRange(xMin, xMax, yMin, yMax, consumer);
+    }
+
+    /**
+     * Gets every logic site (SLICEL and/or SLICEM) of a clock region
+     * @param cr the clock region
+     * @return the logic sites of the clock region, in scanline order (by y, then by x)
+     */
+    public static List<Site> getLogicSitesInClockRegion(ClockRegion cr)
+    {
+        return SiteGrid.get(cr.getDevice()).getSitesInClockRegion(cr);
     }
 
     /**
@@ -133,23 +147,7 @@ public class RapidWrightTools
      */
     public static Tile getLogicalUpperLeft(ClockRegion cr)
     {
-        Tile upperLeft = cr.getUpperLeft();
-        Tile lowerRight = cr.getLowerRight();
-
-        for(int y = upperLeft.getRow(); y <= lowerRight.getRow(); y++)
-        {
-            for(int x = upperLeft.getColumn(); x <= lowerRight.getColumn(); x++)
-            {
-                Tile tempTile = cr.getDevice().getTile(y, x);
-                if(tempTile.getTileTypeEnum().name().contains("CLBL")
-                        || tempTile.getTileTypeEnum().name().contains("CLE"))
-                {
-                    return tempTile;
-                }
-            }
-        }
-
-        return null;
+        return ClockRegionGeometry.get(cr).getUpperLeft();
     }
 
     /**
@@ -159,23 +157,7 @@ public class RapidWrightTools
      */
     public static Tile getLogicalLowerRight(ClockRegion cr)
     {
-        Tile upperLeft = cr.getUpperLeft();
-        Tile lowerRight = cr.getLowerRight();
-
-        for(int y = lowerRight.getRow(); y >= upperLeft.getRow(); y--)
-        {
-            for(int x = lowerRight.getColumn(); x >= upperLeft.getColumn(); x--)
-            {
-                Tile tempTile = cr.getDevice().getTile(y, x);
-                if(tempTile.getTileTypeEnum().name().contains("CLBL")
-                    || tempTile.getTileTypeEnum().name().contains("CLE"))
-                {
-                    return tempTile;
-                }
-            }
-        }
-
-        return null;
+        return ClockRegionGeometry.get(cr).getLowerRight();
     }
 
     /**
@@ -189,48 +171,7 @@ public class RapidWrightTools
      */
     public static Tile getLogicalCenter(Device dev, int xMin, int xMax, int yMin, int yMax)
     {
-
-        int xCenter = (xMax + xMin)/2;
-        int yCenter = (yMax + yMin)/2;
-
-        for(int x = 0; x < (xMax - xMin)/2; x++)
-        {
-            for (int y = 0; y < (yMax - yMin)/2; y++)
-            {
-                Tile centerLogicTile = dev.getTile(yCenter - y, xCenter + x);
-                if (centerLogicTile.getTileTypeEnum().name().contains("CLBL")
-                        || centerLogicTile.getTileTypeEnum().name().contains("CLE"))
-                {
-                    return centerLogicTile;
-                }
-
-                centerLogicTile = dev.getTile(yCenter + y, xCenter + x);
-                if (centerLogicTile.getTileTypeEnum().name().contains("CLBL")
-                        || centerLogicTile.getTileTypeEnum().name().contains("CLE"))
-                {
-                    return centerLogicTile;
-                }
-            }
-
-            for (int y = 0; y < (yMax - yMin) / 2; y++)
-            {
-                Tile centerLogicTile = dev.getTile(yCenter - y, xCenter - x);
-                if (centerLogicTile.getTileTypeEnum().name().contains("CLBL")
-                        || centerLogicTile.getTileTypeEnum().name().contains("CLE"))
-                {
-                    return centerLogicTile;
-                }
-
-                centerLogicTile = dev.getTile(yCenter + y, xCenter - x);
-                if (centerLogicTile.getTileTypeEnum().name().contains("CLBL")
-                        || centerLogicTile.getTileTypeEnum().name().contains("CLE"))
-                {
-                    return centerLogicTile;
-                }
-            }
-        }
-
-        return null;
+        return ClockRegionGeometry.findCenter(dev, xMin, xMax, yMin, yMax, null);
     }
 
     /**
@@ -241,48 +182,7 @@ public class RapidWrightTools
      */
     public static Tile getLogicalCenter(ClockRegion cr)
     {
-        Device dev = cr.getDevice();
-        int xMin = getLogicalUpperLeft(cr).getColumn();
-        int xMax = getLogicalLowerRight(cr).getColumn();
-        int yMin = getLogicalUpperLeft(cr).getRow();
-        int yMax = getLogicalLowerRight(cr).getRow();
-
-        int xCenter = (xMax + xMin)/2;
-        int yCenter = (yMax + yMin)/2;
-
-        for(int x = 0; x < (xMax - xMin)/2; x++)
-        {
-            for (int y = 0; y < (yMax - yMin)/2; y++)
-            {
-                Tile centerLogicTile = dev.getTile(yCenter - y, xCenter + x);
-                if (centerLogicTile.getTileTypeEnum().name().contains("CLBL"))
-                {
-                    return centerLogicTile;
-                }
-
-                centerLogicTile = dev.getTile(yCenter + y, xCenter + x);
-                if (centerLogicTile.getTileTypeEnum().name().contains("CLBL"))
-                {
-                    return centerLogicTile;
-                }
-            }
-
-            for (int y = 0; y < (yMax - yMin) / 2; y++)
-            {
-                Tile centerLogicTile = dev.getTile(yCenter - y, xCenter - x);
-                if (centerLogicTile.getTileTypeEnum().name().contains("CLBL"))
-                {
-                    return centerLogicTile;
-                }
-
-                centerLogicTile = dev.getTile(yCenter + y, xCenter - x);
-                if (centerLogicTile.getTileTypeEnum().name().contains("CLBL"))
-                {
-                    return centerLogicTile;
-                }
-            }
-        }
-        return null;
+        return ClockRegionGeometry.get(cr).getCenter();
     }
 
     /**
@@ -350,12 +250,12 @@ public class RapidWrightTools
      */
     public static boolean containsNullSites(Device dev, int xMin, int xMax, int yMin, int yMax)
     {
+        SiteGrid grid = SiteGrid.get(dev);
         for(int y = yMin; y <= yMax; y++)
         {
             for(int x = xMin; x <= xMax; x++)
             {
-                String siteString = String.format("SLICE_X%dY%d", x, y);
-                Site site = dev.getSite(siteString);
+                Site site = grid.getSite(x, y);
 
                 if(site == null)
                 {
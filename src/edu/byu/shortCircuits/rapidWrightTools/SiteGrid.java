@@ -0,0 +1,204 @@
+package edu.byu.shortCircuits.rapidWrightTools;
+
+import com.xilinx.rapidwright.device.ClockRegion;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Site;
+import com.xilinx.rapidwright.device.SiteTypeEnum;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A grid of the logic sites (SLICEL and SLICEM) of a device, indexed by the x and y coordinates of the site (i.e. the
+ * X and Y in SLICE_X0Y0). Looking up a site in the grid is much faster than formatting its name and calling
+ * Device.getSite(String). The grid is built once per device and shared by everything that uses that device.
+ *
+ * The grid also keeps the sites of each row sorted by x (and the sites of each clock region), so range queries only
+ * touch the sites they return.
+ */
+public class SiteGrid
+{
+    private static final Map<String, SiteGrid> grids = new ConcurrentHashMap<>();
+
+    private final Site[][] sites; // indexed by [x][y]. null where there is no logic site
+    private final Site[][] rows; // the sites of each row (y), sorted by x
+    private final int[][] rowXs; // the x coordinate of each site in rows
+    private volatile Map<String, List<Site>> clockRegionSites; // built the first time a clock region is queried
+    private final int width;
+    private final int height;
+
+    private SiteGrid(Device device)
+    {
+        Site[] slicels = getSitesOfType(device, SiteTypeEnum.SLICEL);
+        Site[] slicems = getSitesOfType(device, SiteTypeEnum.SLICEM);
+
+        int maxX = -1;
+        int maxY = -1;
+        for (Site[] siteArray : new Site[][]{slicels, slicems})
+        {
+            for (Site site : siteArray)
+            {
+                maxX = Math.max(maxX, site.getInstanceX());
+                maxY = Math.max(maxY, site.getInstanceY());
+            }
+        }
+
+        width = maxX + 1;
+        height = maxY + 1;
+        sites = new Site[width][height];
+        for (Site[] siteArray : new Site[][]{slicels, slicems})
+        {
+            for (Site site : siteArray)
+            {
+                sites[site.getInstanceX()][site.getInstanceY()] = site;
+            }
+        }
+
+        rows = new Site[height][];
+        rowXs = new int[height][];
+        for (int y = 0; y < height; y++)
+        {
+            int count = 0;
+            for (int x = 0; x < width; x++)
+            {
+                if (sites[x][y] != null)
+                    count++;
+            }
+            rows[y] = new Site[count];
+            rowXs[y] = new int[count];
+            int i = 0;
+            for (int x = 0; x < width; x++)
+            {
+                if (sites[x][y] != null)
+                {
+                    rows[y][i] = sites[x][y];
+                    rowXs[y][i] = x;
+                    i++;
+                }
+            }
+        }
+    }
+
+    private static Site[] getSitesOfType(Device device, SiteTypeEnum type)
+    {
+        Site[] sites = device.getAllSitesOfType(type);
+        return sites == null ? new Site[0] : sites;
+    }
+
+    /**
+     * Gets the site grid of a device. The grid is built the first time it is requested for a device.
+     * @param device the device
+     * @return the site grid of the device
+     */
+    public static SiteGrid get(Device device)
+    {
+        return grids.computeIfAbsent(device.getName(), k -> new SiteGrid(device));
+    }
+
+    /**
+     * Gets the logic site at the coordinates
+     * @param x x coordinate of the site
+     * @param y y coordinate of the site
+     * @return the site, or null if there is no logic site at the coordinates
+     */
+    public Site getSite(int x, int y)
+    {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return null;
+        return sites[x][y];
+    }
+
+    /**
+     * Passes every logic site in the range (inclusive bounds) to the consumer in scanline order (by y, then by x),
+     * without building a list.
+     * @param xMin the minimum x coordinate
+     * @param xMax the maximum x coordinate
+     * @param yMin the minimum y coordinate
+     * @param yMax the maximum y coordinate
+     * @param consumer receives each site
+     */
+    public void forEachSiteInRange(int xMin, int xMax, int yMin, int yMax, Consumer<Site> consumer)
+    {
+        for (int y = Math.max(yMin, 0); y <= Math.min(yMax, height - 1); y++)
+        {
+            int[] xs = rowXs[y];
+            int i = Arrays.binarySearch(xs, xMin);
+            if (i < 0)
+                i = -i - 1;
+            for (; i < xs.length && xs[i] <= xMax; i++)
+                consumer.accept(rows[y][i]);
+        }
+    }
+
+    /**
+     * Gets every logic site in the range (inclusive bounds)
+     * @return the sites in scanline order (by y, then by x)
+     */
+    public ArrayList<Site> getSitesInRange(int xMin, int xMax, int yMin, int yMax)
+    {
+        ArrayList<Site> sites = new ArrayList<>();
+        forEachSiteInRange(xMin, xMax, yMin, yMax, sites::add);
+        return sites;
+    }
+
+    /**
+     * Gets every logic site of a clock region
+     * @param clockRegion the clock region
+     * @return the sites in scanline order (by y, then by x)
+     */
+    public List<Site> getSitesInClockRegion(ClockRegion clockRegion)
+    {
+        return getSitesInClockRegion(clockRegion.getName());
+    }
+
+    /**
+     * Gets every logic site of a clock region
+     * @param name the name of the clock region, with or without the CLOCKREGION_ prefix (e.g. X0Y1)
+     * @return the sites in scanline order (by y, then by x)
+     */
+    public List<Site> getSitesInClockRegion(String name)
+    {
+        // clock regions are named X#Y# or CLOCKREGION_X#Y# depending on the version of the device files
+        Map<String, List<Site>> clockRegions = getClockRegionSites();
+        List<Site> sites = clockRegions.get(name);
+        if (sites == null && name.startsWith("CLOCKREGION_"))
+            sites = clockRegions.get(name.substring("CLOCKREGION_".length()));
+        else if (sites == null)
+            sites = clockRegions.get("CLOCKREGION_" + name);
+        return sites == null ? Collections.<Site>emptyList() : sites;
+    }
+
+    private Map<String, List<Site>> getClockRegionSites()
+    {
+        Map<String, List<Site>> clockRegions = clockRegionSites;
+        if (clockRegions == null)
+        {
+            clockRegions = new HashMap<>();
+            for (Site[] row : rows)
+            {
+                for (Site site : row)
+                {
+                    ClockRegion clockRegion = site.getTile().getClockRegion();
+                    if (clockRegion != null)
+                        clockRegions.computeIfAbsent(clockRegion.getName(), k -> new ArrayList<>()).add(site);
+                }
+            }
+            for (Map.Entry<String, List<Site>> entry : clockRegions.entrySet())
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            // several threads may build the map at the same time, which is harmless since they build the same map
+            clockRegionSites = clockRegions;
+        }
+        return clockRegions;
+    }
+
+    /**
+     * @return one more than the largest x coordinate of any logic site
+     */
+    public int getWidth() { return width; }
+
+    /**
+     * @return one more than the largest y coordinate of any logic site
+     */
+    public int getHeight() { return height; }
+}
@@ -0,0 +1,311 @@
+package edu.byu.shortCircuits.rapidWrightTools;
+
+import com.xilinx.rapidwright.device.ClockRegion;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Site;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A set of logic sites made up of rectangles, clock regions and pblock ranges, minus any number of exclusion zones.
+ * Areas are applied in the order they are added, so an area that is added after an exclusion can add sites back in.
+ * The region is compiled into a list of the logic sites it contains in scanline order (by y, then by x), so an
+ * irregular region costs no more to iterate than a rectangle and coordinates without a logic site are never probed.
+ *
+ * <pre>
+ *   SiteRegion region = new SiteRegion()
+ *           .addPblock("SLICE_X0Y0:SLICE_X65Y149 CLOCKREGION_X1Y2")
+ *           .exclude(10, 13, 50, 59); // keep the ring oscillators clean
+ * </pre>
+ */
+public class SiteRegion
+{
+    private static final Pattern RANGE_PATTERN =
+            Pattern.compile("(SLICE|CLOCKREGION)_X(\\d+)Y(\\d+)(?::(?:SLICE|CLOCKREGION)_X(\\d+)Y(\\d+))?");
+
+    private final List<Area> areas = new ArrayList<>();
+    private Device compiledDevice; // the device the sites were last compiled for
+    private List<Site> compiledSites; // null until the sites are compiled, and again whenever an area is added
+
+    /**
+     * Adds a rectangle of sites (inclusive bounds, in the site coordinates of SLICE_X#Y#)
+     * @return this region
+     */
+    public SiteRegion add(int xMin, int xMax, int yMin, int yMax)
+    {
+        return addArea(new Rectangle(xMin, xMax, yMin, yMax, true));
+    }
+
+    /**
+     * Adds every logic site of a clock region
+     * @return this region
+     */
+    public SiteRegion add(ClockRegion clockRegion)
+    {
+        return addArea(new ClockRegionArea(clockRegion.getName(), true));
+    }
+
+    /**
+     * Adds the ranges of a pblock, e.g. "SLICE_X0Y0:SLICE_X10Y49 CLOCKREGION_X0Y1:CLOCKREGION_X1Y1". Only SLICE and
+     * CLOCKREGION ranges are supported.
+     * @param ranges the ranges, separated by spaces or commas
+     * @return this region
+     */
+    public SiteRegion addPblock(String ranges)
+    {
+        parsePblock(ranges, true);
+        return this;
+    }
+
+    /**
+     * Removes a rectangle of sites (inclusive bounds) from the region
+     * @return this region
+     */
+    public SiteRegion exclude(int xMin, int xMax, int yMin, int yMax)
+    {
+        return addArea(new Rectangle(xMin, xMax, yMin, yMax, false));
+    }
+
+    /**
+     * Removes every logic site of a clock region from the region
+     * @return this region
+     */
+    public SiteRegion exclude(ClockRegion clockRegion)
+    {
+        return addArea(new ClockRegionArea(clockRegion.getName(), false));
+    }
+
+    /**
+     * Removes the ranges of a pblock from the region
+     * @param ranges the ranges, separated by spaces or commas
+     * @return this region
+     */
+    public SiteRegion excludePblock(String ranges)
+    {
+        parsePblock(ranges, false);
+        return this;
+    }
+
+    private synchronized SiteRegion addArea(Area area)
+    {
+        areas.add(area);
+        compiledSites = null;
+        return this;
+    }
+
+    private void parsePblock(String ranges, boolean include)
+    {
+        for (String range : ranges.trim().split("[\\s,]+"))
+        {
+            if (range.isEmpty())
+                continue;
+            Matcher m = RANGE_PATTERN.matcher(range);
+            if (!m.matches())
+                throw new RuntimeException("ERROR: Unsupported pblock range " + range
+                        + ". Only SLICE and CLOCKREGION ranges are supported");
+
+            int x0 = Integer.parseInt(m.group(2));
+            int y0 = Integer.parseInt(m.group(3));
+            int x1 = m.group(4) == null ? x0 : Integer.parseInt(m.group(4));
+            int y1 = m.group(5) == null ? y0 : Integer.parseInt(m.group(5));
+            int xMin = Math.min(x0, x1);
+            int xMax = Math.max(x0, x1);
+            int yMin = Math.min(y0, y1);
+            int yMax = Math.max(y0, y1);
+
+            if (m.group(1).equals("SLICE"))
+            {
+                addArea(new Rectangle(xMin, xMax, yMin, yMax, include));
+                continue;
+            }
+            for (int y = yMin; y <= yMax; y++)
+            {
+                for (int x = xMin; x <= xMax; x++)
+                    addArea(new ClockRegionArea("X" + x + "Y" + y, include));
+            }
+        }
+    }
+
+    /**
+     * Gets every logic site in the region. The sites are compiled the first time they are asked for and kept until an
+     * area is added or excluded, or the sites of another device are asked for.
+     * @param device the device
+     * @return the logic sites, in scanline order (by y, then by x)
+     */
+    public synchronized List<Site> getSites(Device device)
+    {
+        if (compiledSites == null || compiledDevice != device)
+        {
+            compiledSites = compile(SiteGrid.get(device));
+            compiledDevice = device;
+        }
+        return compiledSites;
+    }
+
+    /**
+     * Applies the areas to the rows of the bounding box of the areas that add sites, so a small region of a large
+     * device only allocates the rows and columns it spans
+     */
+    private List<Site> compile(SiteGrid grid)
+    {
+        int xMin = Integer.MAX_VALUE, xMax = -1, yMin = Integer.MAX_VALUE, yMax = -1;
+        for (Area area : areas)
+        {
+            if (!area.isIncluded())
+                continue;
+            int[] bounds = area.getBounds(grid);
+            if (bounds == null)
+                continue;
+            xMin = Math.min(xMin, bounds[0]);
+            xMax = Math.max(xMax, bounds[1]);
+            yMin = Math.min(yMin, bounds[2]);
+            yMax = Math.max(yMax, bounds[3]);
+        }
+        if (xMax < 0)
+            return Collections.emptyList();
+
+        Rows rows = new Rows(xMin, xMax, yMin, yMax);
+        for (Area area : areas)
+            area.apply(grid, rows);
+
+        List<Site> sites = new ArrayList<>();
+        for (int y = yMin; y <= yMax; y++)
+        {
+            BitSet row = rows.bits[y - yMin];
+            for (int i = row.nextSetBit(0); i >= 0; i = row.nextSetBit(i + 1))
+            {
+                Site site = grid.getSite(xMin + i, y);
+                if (site != null)
+                    sites.add(site);
+            }
+        }
+        return Collections.unmodifiableList(sites);
+    }
+
+    /**
+     * The rows of the bounding box of a region, one bit per x coordinate
+     */
+    private static class Rows
+    {
+        private final int xMin, xMax, yMin, yMax;
+        private final BitSet[] bits;
+
+        private Rows(int xMin, int xMax, int yMin, int yMax)
+        {
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.yMin = yMin;
+            this.yMax = yMax;
+            bits = new BitSet[yMax - yMin + 1];
+            for (int y = 0; y < bits.length; y++)
+                bits[y] = new BitSet(xMax - xMin + 1);
+        }
+
+        /**
+         * Sets or clears the coordinates x0 to x1 (inclusive) of row y. Coordinates outside of the box are ignored.
+         */
+        private void set(int x0, int x1, int y, boolean include)
+        {
+            if (y < yMin || y > yMax)
+                return;
+            x0 = Math.max(x0, xMin);
+            x1 = Math.min(x1, xMax);
+            if (x0 <= x1)
+                bits[y - yMin].set(x0 - xMin, x1 - xMin + 1, include);
+        }
+    }
+
+    /**
+     * A part of the region that adds sites to or removes sites from the rows of the region
+     */
+    private interface Area
+    {
+        boolean isIncluded();
+
+        /**
+         * @return the bounds {xMin, xMax, yMin, yMax} of the area within the grid, or null if it has no sites
+         */
+        int[] getBounds(SiteGrid grid);
+
+        void apply(SiteGrid grid, Rows rows);
+    }
+
+    private static class Rectangle implements Area
+    {
+        private final int xMin, xMax, yMin, yMax;
+        private final boolean include;
+
+        private Rectangle(int xMin, int xMax, int yMin, int yMax, boolean include)
+        {
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.yMin = yMin;
+            this.yMax = yMax;
+            this.include = include;
+        }
+
+        @Override
+        public boolean isIncluded() { return include; }
+
+        @Override
+        public int[] getBounds(SiteGrid grid)
+        {
+            int x0 = Math.max(xMin, 0);
+            int x1 = Math.min(xMax, grid.getWidth() - 1);
+            int y0 = Math.max(yMin, 0);
+            int y1 = Math.min(yMax, grid.getHeight() - 1);
+            return x0 <= x1 && y0 <= y1 ? new int[]{x0, x1, y0, y1} : null;
+        }
+
+        @Override
+        public void apply(SiteGrid grid, Rows rows)
+        {
+            for (int y = Math.max(yMin, rows.yMin); y <= Math.min(yMax, rows.yMax); y++)
+                rows.set(xMin, xMax, y, include);
+        }
+    }
+
+    private static class ClockRegionArea implements Area
+    {
+        private final String name; // e.g. X0Y1 or CLOCKREGION_X0Y1
+        private final boolean include;
+
+        private ClockRegionArea(String name, boolean include)
+        {
+            this.name = name;
+            this.include = include;
+        }
+
+        @Override
+        public boolean isIncluded() { return include; }
+
+        @Override
+        public int[] getBounds(SiteGrid grid)
+        {
+            List<Site> sites = grid.getSitesInClockRegion(name);
+            if (sites.isEmpty())
+                return null;
+            int[] bounds = {Integer.MAX_VALUE, -1, Integer.MAX_VALUE, -1};
+            for (Site site : sites)
+            {
+                bounds[0] = Math.min(bounds[0], site.getInstanceX());
+                bounds[1] = Math.max(bounds[1], site.getInstanceX());
+                bounds[2] = Math.min(bounds[2], site.getInstanceY());
+                bounds[3] = Math.max(bounds[3], site.getInstanceY());
+            }
+            return bounds;
+        }
+
+        @Override
+        public void apply(SiteGrid grid, Rows rows)
+        {
+            for (Site site : grid.getSitesInClockRegion(name))
+                rows.set(site.getInstanceX(), site.getInstanceX(), site.getInstanceY(), include);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package edu.byu.shortCircuits.rapidWrightTools;
+
+import com.xilinx.rapidwright.device.Tile;
+import com.xilinx.rapidwright.device.Wire;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A set of used wires. Each wire is stored as a single primitive long made up of the unique address of its tile and
+ * its wire index, in an open-addressing hash table. This takes far less memory than a set of Wire objects and never
+ * has to create a Wire object just to check if it is used.
+ *
+ * A set can optionally be layered on top of a parent set. Wires added to the layer are not added to the parent, but
+ * the layer reports every wire in the parent as used. This allows wires to be used tentatively (e.g. by a single
+ * thread) without copying or modifying the parent set.
+ */
+public class UsedWireSet
+{
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+
+    private final UsedWireSet parent;
+    private long[] keys;
+    private int size;
+
+    /**
+     * Creates an empty set of used wires.
+     */
+    public UsedWireSet()
+    {
+        this((UsedWireSet) null);
+    }
+
+    /**
+     * Creates an empty set of used wires that is layered on top of another set.
+     * @param parent the set whose wires will also be reported as used by this set. It is never modified by this set.
+     */
+    public UsedWireSet(UsedWireSet parent)
+    {
+        this.parent = parent;
+        this.keys = new long[MIN_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Creates a set of used wires that contains every wire in the collection
+     * @param wires a collection of wires
+     */
+    public UsedWireSet(Collection<Wire> wires)
+    {
+        this((UsedWireSet) null);
+        for (Wire wire : wires)
+            add(wire);
+    }
+
+    private static long toKey(Tile tile, int wireIndex)
+    {
+        return ((long) tile.getUniqueAddress() << 32) | (wireIndex & 0xffffffffL);
+    }
+
+    private static int hash(long key)
+    {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private int indexOf(long key)
+    {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Adds a wire to the set
+     * @param tile the tile of the wire
+     * @param wireIndex the index of the wire within the tile
+     * @return true if the wire was not already in this set
+     */
+    public boolean add(Tile tile, int wireIndex)
+    {
+        long key = toKey(tile, wireIndex);
+        int i = indexOf(key);
+        if (keys[i] == key)
+            return false;
+
+        keys[i] = key;
+        size++;
+        // keeps the table at most half full
+        if (size * 2 > keys.length)
+            rehash(keys.length * 2);
+        return true;
+    }
+
+    /**
+     * Adds a wire to the set
+     * @param wire the wire
+     * @return true if the wire was not already in this set
+     */
+    public boolean add(Wire wire)
+    {
+        return add(wire.getTile(), wire.getWireIndex());
+    }
+
+    /**
+     * Removes a wire from this set. The parent set is not modified.
+     * @param tile the tile of the wire
+     * @param wireIndex the index of the wire within the tile
+     * @return true if the wire was in this set
+     */
+    public boolean remove(Tile tile, int wireIndex)
+    {
+        long key = toKey(tile, wireIndex);
+        int i = indexOf(key);
+        if (keys[i] != key)
+            return false;
+
+        // shifts the following entries of the probe sequence back so that no lookup stops early at the removed slot
+        int mask = keys.length - 1;
+        int j = i;
+        while (true)
+        {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY)
+                break;
+            int home = hash(keys[j]) & mask;
+            boolean reachable = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (reachable)
+                continue;
+            keys[i] = keys[j];
+            i = j;
+        }
+        keys[i] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes a wire from this set. The parent set is not modified.
+     * @param wire the wire
+     * @return true if the wire was in this set
+     */
+    public boolean remove(Wire wire)
+    {
+        return remove(wire.getTile(), wire.getWireIndex());
+    }
+
+    /**
+     * Checks if a wire is used, either in this set or in its parent set.
+     * @param tile the tile of the wire
+     * @param wireIndex the index of the wire within the tile
+     * @return true if the wire is used
+     */
+    public boolean contains(Tile tile, int wireIndex)
+    {
+        long key = toKey(tile, wireIndex);
+        if (keys[indexOf(key)] == key)
+            return true;
+        return parent != null && parent.contains(tile, wireIndex);
+    }
+
+    /**
+     * Checks if a wire is used, either in this set or in its parent set.
+     * @param wire the wire
+     * @return true if the wire is used
+     */
+    public boolean contains(Wire wire)
+    {
+        return contains(wire.getTile(), wire.getWireIndex());
+    }
+
+    /**
+     * @return the number of wires in this set (not including wires of the parent set)
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes all of the wires from this set. The parent set is not modified.
+     */
+    public void clear()
+    {
+        keys = new long[MIN_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        for (long key : oldKeys)
+        {
+            if (key != EMPTY)
+                keys[indexOf(key)] = key;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.device.ClockRegion;
+import com.xilinx.rapidwright.device.Tile;
+import com.xilinx.rapidwright.edif.EDIFNet;
+import com.xilinx.rapidwright.edif.EDIFPortInst;
+
+import java.util.*;
+
+/**
+ * Describes how the config signal of the short LUTs is distributed. By default every input pin of every short LUT is
+ * connected to a single lut_config net. For large designs the signal can instead be split into one net per clock
+ * region or per tile (lut_config_&lt;clock region or tile&gt;), and each of those nets can be bounded to a maximum
+ * number of sinks (lut_config_&lt;clock region or tile&gt;_&lt;n&gt;). The inputs of a LUT are always kept on the
+ * same net.
+ *
+ * The pins are connected one at a time with Net.connect (see Short.connectConfigNet). What makes one big config net
+ * slow is its size, and splitting it keeps every net small, so there is no separate bulk connect that builds the
+ * port instances and site pins by hand.
+ */
+public class ConfigNetDistribution
+{
+    public static final String CONFIG_NET_NAME = "lut_config";
+
+    /**
+     * How the short LUTs are grouped into config nets
+     */
+    public enum Partition
+    {
+        /** every LUT is connected to one net */
+        SINGLE,
+        /** one net per clock region */
+        CLOCK_REGION,
+        /** one net per logic tile */
+        TILE
+    }
+
+    private final Partition partition;
+    private final int maxFanout;
+
+    /**
+     * Creates a distribution that connects every LUT to the single lut_config net
+     */
+    public ConfigNetDistribution()
+    {
+        this(Partition.SINGLE, 0);
+    }
+
+    /**
+     * Creates a distribution
+     * @param partition how the LUTs are grouped into config nets
+     * @param maxFanout the maximum number of sink pins of a config net, or 0 for no limit. Each LUT has
+     *                  Short.getConfigPinCount() sinks.
+     */
+    public ConfigNetDistribution(Partition partition, int maxFanout)
+    {
+        if (maxFanout < 0)
+            throw new RuntimeException("ERROR: The fanout of a config net can't be negative (" + maxFanout + ")");
+        this.partition = partition;
+        this.maxFanout = maxFanout;
+    }
+
+    public Partition getPartition() { return partition; }
+
+    public int getMaxFanout() { return maxFanout; }
+
+    /**
+     * Connects the LUT of every short to its config net. Nets that already exist in the design are reused, so shorts
+     * that are added later can be distributed onto the same nets: the LUTs already on a net count towards its fanout,
+     * and new LUTs go to the first net of their group that still has room. Shorts whose LUT is already connected to a
+     * config net are skipped.
+     * @param d the design that contains the shorts
+     * @param shorts the shorts to connect
+     * @return the config nets the shorts were connected to
+     */
+    public List<Net> distribute(Design d, Collection<Short> shorts)
+    {
+        Map<String, List<Short>> groups = new LinkedHashMap<>();
+        for (Short s : shorts)
+        {
+            if (!s.isConfigNetConnected())
+                groups.computeIfAbsent(getGroupName(s), k -> new ArrayList<>()).add(s);
+        }
+
+        int shortsPerNet = maxFanout == 0 ? Integer.MAX_VALUE : Math.max(1, maxFanout / Short.getConfigPinCount());
+        List<Net> nets = new ArrayList<>();
+        for (Map.Entry<String, List<Short>> group : groups.entrySet())
+        {
+            List<Short> groupShorts = group.getValue();
+            for (int start = 0, chunk = 0; start < groupShorts.size(); chunk++)
+            {
+                String netName = chunk == 0 ? group.getKey() : group.getKey() + "_" + chunk;
+                Net configNet = d.getNet(netName);
+                int room = shortsPerNet;
+                if (configNet == null)
+                    configNet = d.createNet(netName);
+                else if (shortsPerNet != Integer.MAX_VALUE)
+                    room -= getConnectedLUTCount(configNet);
+                if (room <= 0)
+                    continue;
+
+                int end = (int) Math.min((long) start + room, groupShorts.size());
+                for (int i = start; i < end; i++)
+                    groupShorts.get(i).connectConfigNet(configNet);
+                nets.add(configNet);
+                start = end;
+            }
+        }
+        return nets;
+    }
+
+    /**
+     * Gets the number of LUTs a config net already drives, counting each LUT once however many of its inputs are
+     * connected
+     */
+    private static int getConnectedLUTCount(Net configNet)
+    {
+        EDIFNet logicalNet = configNet.getLogicalNet();
+        if (logicalNet == null)
+            return 0;
+        int sinks = 0;
+        for (EDIFPortInst portInst : logicalNet.getPortInsts())
+        {
+            if (portInst.getCellInst() != null && portInst.isInput())
+                sinks++;
+        }
+        return (sinks + Short.getConfigPinCount() - 1) / Short.getConfigPinCount();
+    }
+
+    /**
+     * Gets the name of the config net a short belongs to (before its fanout is bounded)
+     */
+    private String getGroupName(Short s)
+    {
+        Tile tile = s.getTile();
+        switch (partition)
+        {
+            case CLOCK_REGION:
+                ClockRegion clockRegion = tile.getClockRegion();
+                // tiles outside of every clock region fall back to a net of their own
+                return CONFIG_NET_NAME + "_" + (clockRegion != null ? clockRegion.getName() : tile.getName());
+            case TILE:
+                return CONFIG_NET_NAME + "_" + tile.getName();
+            default:
+                return CONFIG_NET_NAME;
+        }
+    }
+}
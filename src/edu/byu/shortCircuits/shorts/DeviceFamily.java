@@ -0,0 +1,152 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.device.*;
+import edu.byu.shortCircuits.rapidWrightTools.BELID;
+import edu.byu.shortCircuits.rapidWrightTools.LogicBELID;
+import edu.byu.shortCircuits.rapidWrightTools.UltraBELID;
+
+/**
+ * The device families that shorts can be created on. Each family knows how its logic sites are laid out (how many
+ * LUT-FF pairs they have and what their BELs and site pins are called) and how the output of a BEL reaches the larger
+ * switchbox, so the same placement and routing code can be used for every family.
+ */
+public enum DeviceFamily
+{
+    /**
+     * 7 series CLBLL/CLBLM tiles: two slices per tile with four LUT-FF pairs (A-D) each. The site pins of a slice
+     * connect to the switchbox through a DIRECTIONAL_NOT_BUFFERED21 PIP in the CLB tile.
+     */
+    SERIES7(BELID.values())
+    {
+        @Override
+        public String getSitePinName(BEL bel)
+        {
+            String type = bel.getBELType();
+            String id = bel.getName().substring(0, 1);
+            // These if-else statements correlate the LUT to a string that vivado uses
+            // to identify the site pin they are connected to
+            if (type.contains("LUT"))
+                return id;
+            else if (type.equals("REG_INIT"))
+                return id + "Q";
+            else if (type.equals("FF_INIT"))
+                return id + "MUX";
+            return null;
+        }
+
+        @Override
+        public PIP getSwitchboxPIP(Wire tileWire)
+        {
+            return ShortCandidateTable.findSwitchboxPIP(tileWire);
+        }
+
+        @Override
+        public boolean hasSwitchboxPIP() { return true; }
+    },
+
+    /**
+     * UltraScale/UltraScale+ CLE tiles: one slice per tile with eight LUT-FF pairs (A-H). The site pin wires of a slice
+     * are part of nodes that already reach into the switchbox, so no PIP is needed to get there.
+     */
+    ULTRASCALE(UltraBELID.values())
+    {
+        @Override
+        public String getSitePinName(BEL bel)
+        {
+            String name = bel.getName();
+            String id = name.substring(0, 1);
+            if (bel.getBELType().contains("LUT"))
+                return id + "_O";
+            else if (name.endsWith("FF2"))
+                return id + "Q2";
+            else if (name.endsWith("FF"))
+                return id + "Q";
+            return null;
+        }
+
+        @Override
+        public PIP getSwitchboxPIP(Wire tileWire)
+        {
+            return null;
+        }
+
+        @Override
+        public boolean hasSwitchboxPIP() { return false; }
+    };
+
+    private final LogicBELID[] belIDs;
+
+    DeviceFamily(LogicBELID[] belIDs)
+    {
+        this.belIDs = belIDs;
+    }
+
+    /**
+     * Gets the family of a device
+     * @param device the device
+     * @return the family of the device
+     */
+    public static DeviceFamily of(Device device)
+    {
+        Series series = device.getSeries();
+        if (series == Series.Series7)
+            return SERIES7;
+        else if (series == Series.UltraScale || series == Series.UltraScalePlus)
+            return ULTRASCALE;
+        throw new RuntimeException("ERROR: Shorts are not supported on " + series + " devices (" + device.getName()
+                + ")");
+    }
+
+    /**
+     * @return the IDs of every LUT-FF pair in a logic site
+     */
+    public LogicBELID[] getBELIDs()
+    {
+        return belIDs.clone();
+    }
+
+    /**
+     * @return the number of LUT-FF pairs in a logic site
+     */
+    public int getPairsPerSite()
+    {
+        return belIDs.length;
+    }
+
+    /**
+     * @param id the ID of a LUT-FF pair
+     * @return the name of the 6LUT of the pair
+     */
+    public String getLUTName(LogicBELID id)
+    {
+        return id + Short.getLUTPostfix();
+    }
+
+    /**
+     * @param id the ID of a LUT-FF pair
+     * @return the name of the FF of the pair
+     */
+    public String getFFName(LogicBELID id)
+    {
+        return id + Short.getRegInitPostfix();
+    }
+
+    /**
+     * Gets the name of the site pin that a shortable BEL drives
+     * @param bel the BEL
+     * @return the name of the site pin, or null if the BEL is not shortable
+     */
+    public abstract String getSitePinName(BEL bel);
+
+    /**
+     * Gets the PIP that connects the tile wire of a BEL to the larger switchbox.
+     * @param tileWire the tile wire driven by the BEL
+     * @return the PIP, or null if there is none
+     */
+    public abstract PIP getSwitchboxPIP(Wire tileWire);
+
+    /**
+     * @return true if a PIP is needed to connect the tile wire of a BEL to the larger switchbox
+     */
+    public abstract boolean hasSwitchboxPIP();
+}
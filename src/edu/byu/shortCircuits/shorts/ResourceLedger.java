@@ -0,0 +1,156 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.design.Cell;
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.device.BEL;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.Site;
+import com.xilinx.rapidwright.device.SiteTypeEnum;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps count of the 6LUTs and FFs used in a design. The design is only scanned once when the ledger is created, after
+ * which the counts are kept up to date as short cells are placed and removed. This makes it cheap to check how many
+ * LUTs can still be used before reaching the limit of the device.
+ */
+public class ResourceLedger
+{
+    private static final SiteTypeEnum[] LOGIC_SITE_TYPES = {SiteTypeEnum.SLICEL, SiteTypeEnum.SLICEM};
+    private static final Map<String, int[]> deviceCapacities = new ConcurrentHashMap<>(); // {LUT6s, FFs} per device
+
+    private int lutCount;
+    private int ffCount;
+    private int maxLuts;
+
+    /**
+     * Creates a ledger for the design. The maximum number of LUTs is the number of 6LUTs on the device.
+     * @param d the design to count the resources of
+     */
+    public ResourceLedger(Design d)
+    {
+        this(d, getLutCapacity(d.getDevice()));
+    }
+
+    /**
+     * Creates a ledger for the design.
+     * @param d the design to count the resources of
+     * @param maxLuts the maximum number of 6LUTs that may be used in the design
+     */
+    public ResourceLedger(Design d, int maxLuts)
+    {
+        this.maxLuts = maxLuts;
+        for (Cell cell : d.getCells())
+        {
+            if (cell.getName().equals("<LOCKED>"))
+                continue;
+            add(cell.getBEL());
+        }
+    }
+
+    /**
+     * Records that a cell has been placed on the BEL
+     * @param bel the BEL
+     */
+    public void add(BEL bel)
+    {
+        if (isLut6(bel))
+            lutCount++;
+        else if (bel != null && bel.isFF())
+            ffCount++;
+    }
+
+    /**
+     * Records that the cell on the BEL has been removed
+     * @param bel the BEL
+     */
+    public void remove(BEL bel)
+    {
+        if (isLut6(bel))
+            lutCount--;
+        else if (bel != null && bel.isFF())
+            ffCount--;
+    }
+
+    /**
+     * Records that both cells of a short have been placed
+     * @param s the short
+     */
+    public void add(Short s)
+    {
+        add(s.getFirstCell().getBel());
+        add(s.getSecondCell().getBel());
+    }
+
+    /**
+     * Records that both cells of a short have been removed
+     * @param s the short
+     */
+    public void remove(Short s)
+    {
+        remove(s.getFirstCell().getBel());
+        remove(s.getSecondCell().getBel());
+    }
+
+    private static boolean isLut6(BEL bel)
+    {
+        return bel != null && (bel.getBELType().equals("LUT6") || bel.getBELType().equals("LUT_OR_MEM6"));
+    }
+
+    public int getLutCount() { return lutCount; }
+
+    public int getFFCount() { return ffCount; }
+
+    public int getMaxLuts() { return maxLuts; }
+
+    public void setMaxLuts(int maxLuts) { this.maxLuts = maxLuts; }
+
+    /**
+     * @return the number of 6LUTs that can still be used before reaching the maximum
+     */
+    public int getRemainingLuts() { return maxLuts - lutCount; }
+
+    /**
+     * Gets the number of 6LUTs in the logic sites of a device, i.e. 20,800 for the ARTY A7-35t.
+     * @param device the device
+     * @return the number of 6LUTs in the device
+     */
+    public static int getLutCapacity(Device device)
+    {
+        return getCapacity(device)[0];
+    }
+
+    /**
+     * Gets the number of FFs in the logic sites of a device.
+     * @param device the device
+     * @return the number of FFs in the device
+     */
+    public static int getFFCapacity(Device device)
+    {
+        return getCapacity(device)[1];
+    }
+
+    private static int[] getCapacity(Device device)
+    {
+        return deviceCapacities.computeIfAbsent(device.getName(), k -> {
+            int[] capacity = new int[2];
+            for (SiteTypeEnum type : LOGIC_SITE_TYPES)
+            {
+                Site[] sites = device.getAllSitesOfType(type);
+                if (sites == null || sites.length == 0)
+                    continue;
+
+                // every logic site of the same type has the same BELs
+                for (BEL bel : sites[0].getBELs())
+                {
+                    if (isLut6(bel))
+                        capacity[0] += sites.length;
+                    else if (bel.isFF())
+                        capacity[1] += sites.length;
+                }
+            }
+            return capacity;
+        });
+    }
+}
@@ -6,6 +6,8 @@ import com.xilinx.rapidwright.design.Net;
 import com.xilinx.rapidwright.device.*;
 import com.xilinx.rapidwright.edif.*;
 import com.xilinx.rapidwright.util.Pair;
+import edu.byu.shortCircuits.metrics.ShortMetrics;
+import edu.byu.shortCircuits.rapidWrightTools.UsedWireSet;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -17,9 +19,13 @@ import java.util.List;
  */
 public class Short
 {
+    private static final String[] LUT_INPUT_PINS = {"I0", "I1", "I2", "I3", "I4", "I5"};
+
     private ShortCell cell0;
     private ShortCell cell1;
     private Net net; // A net that contains all of the PIPs that connect the shorted BELs
+    private int id = -1; // ID the cells and net are named by when compact naming is used, otherwise -1
+    private ShortCandidateTable.Candidates candidates; // looked up the first time they are needed
 //    private List<Net> configNets = new LinkedList<>();
 
 
@@ -54,21 +60,55 @@ public class Short
     }
 
 
+    /**
+     * Creates a short from cells and a net that already exist in a design, without looking them up by name.
+     */
+    Short(ShortCell cell0, ShortCell cell1, Net net) {
+        this(cell0, cell1, net, -1);
+    }
+
+    /**
+     * Creates a short from cells and a net that already exist in a design and were named by ID.
+     */
+    Short(ShortCell cell0, ShortCell cell1, Net net, int id) {
+        this.cell0 = cell0;
+        this.cell1 = cell1;
+        this.net = net;
+        this.id = id;
+    }
+
     public Short(Design d, String site0, String site1, String bel0, String bel1) {
         Site s0 = d.getDevice().getSite(site0);
         Site s1 = d.getDevice().getSite(site1);
         BEL b0 = s0.getBEL(bel0);
         BEL b1 = s1.getBEL(bel1);
-        placeShort(d, s0, s1, b0, b1);
-        createShortedNet(d);
+        placeShort(d, s0, s1, b0, b1, ShortNaming.VERBOSE, false);
+        createShortedNet(d, ShortNaming.VERBOSE);
     }
 
     public Short(Design d, Site site0, Site site1, BEL bel0, BEL bel1) {
-        placeShort(d, site0, site1, bel0, bel1);
-        createShortedNet(d);
+        this(d, site0, site1, bel0, bel1, ShortNaming.VERBOSE);
     }
 
-    private void placeShort(Design d, Site site0, Site site1, BEL bel0, BEL bel1) {
+    /**
+     * Creates and places a short whose cells and net are named by the provided naming
+     */
+    public Short(Design d, Site site0, Site site1, BEL bel0, BEL bel1, ShortNaming naming) {
+        this(d, site0, site1, bel0, bel1, naming, false);
+    }
+
+    /**
+     * Creates and places a short whose cells and net are named by the provided naming
+     * @param sharedPrototypes true to write the INIT of the cells with shared property values (see ShortCell)
+     */
+    public Short(Design d, Site site0, Site site1, BEL bel0, BEL bel1, ShortNaming naming, boolean sharedPrototypes) {
+        id = naming.nextId();
+        placeShort(d, site0, site1, bel0, bel1, naming, sharedPrototypes);
+        createShortedNet(d, naming);
+    }
+
+    private void placeShort(Design d, Site site0, Site site1, BEL bel0, BEL bel1, ShortNaming naming,
+                            boolean sharedPrototypes) {
         //makes sure that the sites are in the same tile
         if(!site0.getTile().equals(site1.getTile()))
         {
@@ -80,93 +120,249 @@ public class Short
         LogicValue config1 = LogicValue.HIGH;
 
         //creates placed shortBel objects to be passed to the first createShort method
-        cell0 = new ShortCell(d, site0, bel0, config0);
-        cell1 = new ShortCell(d, site1, bel1, config1);
+        cell0 = new ShortCell(d, site0, bel0, config0, naming.getCellName(site0, bel0, id, 0),
+                sharedPrototypes);
+        cell1 = new ShortCell(d, site1, bel1, config1, naming.getCellName(site1, bel1, id, 1),
+                sharedPrototypes);
     }
 
+    /**
+     * Routes this short around the wires of a collection. The end wires of the candidates are checked with the
+     * collection's own contains, so this is only as fast as the collection's lookups.
+     * @deprecated use routeShort(Design, UsedWireSet, int), which looks up wires by tile and index without creating
+     *             a Wire for every candidate
+     */
+    @Deprecated
     public Net routeShort(Design d, Collection<Wire> usedWires, int numOfShorts) {
-        PIP pip0 = routeToSwitchbox(cell0.getTileWire());
-        PIP pip1 = routeToSwitchbox(cell1.getTileWire());
+        ShortCandidateTable.Candidates candidates = getCandidates();
+        if (!candidates.isRoutable())
+            return null;
+
+        Tile tile = getTile();
+        int[] chosen = new int[numOfShorts];
+        int shortCount = 0;
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            // uses the pips if their shared end wire isn't already in use
+            if (!usedWires.contains(new Wire(candidates.getSwitchboxTile(tile, i), candidates.getEndWireIndex(i))))
+            {
+                chosen[shortCount++] = i;
+                if (shortCount == numOfShorts)
+                    return commitRoute(getRoute(candidates, tile, chosen, 0, shortCount));
+            }
+        }
+        return null;
+    }
+
+    public Net routeShort(Design d, UsedWireSet usedWires, int numOfShorts) {
+        List<PIP> route = findRoute(usedWires, numOfShorts);
+        if (route == null)
+            return null;
+        return commitRoute(route);
+    }
+
+    /**
+     * Finds the PIPs needed to route this short without adding them to the net.
+     * @param usedWires the wires that are already in use
+     * @param numOfShorts how many shorts to create between the two cells
+     * @return the PIPs that connect both cells to the switchbox followed by the pairs of shorting PIPs, or null if
+     *         numOfShorts unused shorts could not be found.
+     */
+    public List<PIP> findRoute(UsedWireSet usedWires, int numOfShorts) {
+        return findRoute(usedWires, numOfShorts, null);
+    }
+
+    /**
+     * Finds the PIPs needed to route this short without adding them to the net.
+     * @param usedWires the wires that are already in use
+     * @param numOfShorts how many shorts to create between the two cells
+     * @param metrics counts the candidates that were examined. May be null.
+     * @return the PIPs that connect both cells to the switchbox followed by the pairs of shorting PIPs, or null if
+     *         numOfShorts unused shorts could not be found.
+     */
+    public List<PIP> findRoute(UsedWireSet usedWires, int numOfShorts, ShortMetrics metrics) {
+        return findRoute(getCandidates(), getTile(), usedWires, numOfShorts, metrics);
+    }
+
+    /**
+     * Finds the PIPs needed to route a short from device data only, so a route can be planned before the cells of the
+     * short are placed.
+     * @param candidates the candidate shorting PIPs of the short
+     * @param tile the logic tile that contains the shorted BELs
+     * @param usedWires the wires that are already in use
+     * @param numOfShorts how many shorts to create between the two BELs
+     * @param metrics counts the candidates that were examined. May be null.
+     * @return the PIPs that connect both BELs to the switchbox followed by the pairs of shorting PIPs, or null if
+     *         numOfShorts unused shorts could not be found.
+     */
+    static List<PIP> findRoute(ShortCandidateTable.Candidates candidates, Tile tile, UsedWireSet usedWires,
+                               int numOfShorts, ShortMetrics metrics) {
+        int[] chosen = findCandidates(candidates, tile, usedWires, numOfShorts, metrics);
+        return chosen == null ? null : getRoute(candidates, tile, chosen, 0, chosen.length);
+    }
+
+    /**
+     * Picks the candidate shorting PIP pairs of a short whose shared end wires are not already in use, in candidate
+     * order.
+     * @param candidates the candidate shorting PIPs of the short
+     * @param tile the logic tile that contains the shorted BELs
+     * @param usedWires the wires that are already in use
+     * @param numOfShorts how many shorts to create between the two BELs
+     * @param metrics counts the candidates that were examined. May be null.
+     * @return the indices of the chosen candidates, or null if numOfShorts unused shorts could not be found.
+     */
+    static int[] findCandidates(ShortCandidateTable.Candidates candidates, Tile tile, UsedWireSet usedWires,
+                                int numOfShorts, ShortMetrics metrics) {
+        if (!candidates.isRoutable())
+            return null;
 
+        int[] chosen = new int[numOfShorts];
         int shortCount = 0;
-        //finds all of the pips in the larger switch box that can be connected to BEL0
-        for (PIP shortPip0 : pip0.getEndNode().getAllDownhillPIPs())
+        for (int i = 0; i < candidates.size(); i++)
         {
-            //finds all of the pips in the larger switch box that can be connected to BEL0
-            for (PIP shortPip1 : pip1.getEndNode().getAllDownhillPIPs())
+            // picks the pips if their shared end wire isn't already in use
+            if (!usedWires.contains(candidates.getSwitchboxTile(tile, i), candidates.getEndWireIndex(i)))
             {
-                // adds the pips to the net if the two end nodes of the two pips are the same as each other
-                if (shortPip0.getEndWire().equals(shortPip1.getEndWire()) && !usedWires.contains(shortPip0.getEndWire()))
-                {
-                    net.addPIP(shortPip0);
-                    net.addPIP(shortPip1);
-                    shortCount++;
-                    if (shortCount == numOfShorts) {
-                        net.lockRouting();
-                        return net;
-                    }
+                chosen[shortCount++] = i;
+                if (shortCount == numOfShorts) {
+                    if (metrics != null)
+                        metrics.add(ShortMetrics.Counter.CANDIDATES_EXAMINED, i + 1);
+                    return chosen;
                 }
             }
         }
 
+        if (metrics != null)
+            metrics.add(ShortMetrics.Counter.CANDIDATES_EXAMINED, candidates.size());
         return null;
     }
 
-    public Net routeShort(Design d, String shortedNode) {
+    /**
+     * Builds the route of a short from the indices of its chosen candidates
+     * @param chosen the indices of the chosen candidates (see findCandidates)
+     * @param from the first index in chosen to use
+     * @param to one past the last index in chosen to use
+     * @return the PIPs that connect both BELs to the switchbox followed by the chosen pairs of shorting PIPs
+     */
+    static List<PIP> getRoute(ShortCandidateTable.Candidates candidates, Tile tile, int[] chosen, int from, int to) {
+        List<PIP> route = candidates.getSwitchboxPIPs(tile);
+        for (int i = from; i < to; i++)
+        {
+            route.add(candidates.getShortPIP0(tile, chosen[i]));
+            route.add(candidates.getShortPIP1(tile, chosen[i]));
+        }
+        return route;
+    }
 
-        PIP pip0 = routeToSwitchbox(cell0.getTileWire());
-        PIP pip1 = routeToSwitchbox(cell1.getTileWire());
+    public Net routeShort(Design d, String shortedNode) {
+        ShortCandidateTable.Candidates candidates = getCandidates();
+        if (!candidates.isRoutable())
+            return null;
 
-        //finds all of the pips in the larger switch box that can be connected to BEL0
-        for (PIP shortPip0 : pip0.getEndNode().getAllDownhillPIPs())
+        Tile tile = getTile();
+        for (int i = 0; i < candidates.size(); i++)
         {
-            //finds all of the pips in the larger switch box that can be connected to BEL0
-            for (PIP shortPip1 : pip1.getEndNode().getAllDownhillPIPs())
+            // adds the pips to the net if the shared end wire is the requested node
+            Tile switchbox = candidates.getSwitchboxTile(tile, i);
+            if (switchbox.getWireName(candidates.getEndWireIndex(i)).equals(shortedNode))
             {
-                // adds the pips to the net if the two end nodes of the two pips are the same as each other
-                if (shortPip0.getEndWire().equals(shortPip1.getEndWire()) && shortPip0.getEndWire().getWireName().equals(shortedNode))
-                {
-                    net.addPIP(shortPip0);
-                    net.addPIP(shortPip1);
-                    net.lockRouting();
-                    return net;
-                }
+                List<PIP> route = candidates.getSwitchboxPIPs(tile);
+                route.add(candidates.getShortPIP0(tile, i));
+                route.add(candidates.getShortPIP1(tile, i));
+                return commitRoute(route);
             }
         }
 
         return null;
     }
 
+    /**
+     * Adds the PIPs of a route found by findRoute to the net and locks its routing.
+     * @param route the PIPs to add to the net
+     * @return the routed net
+     */
+    public Net commitRoute(List<PIP> route) {
+        for (PIP pip : route)
+            net.addPIP(pip);
+        net.lockRouting();
+        return net;
+    }
+
+    /**
+     * @return the candidate shorting PIPs between the two cells of this short
+     */
+    public ShortCandidateTable.Candidates getCandidates() {
+        if (candidates == null)
+            candidates = ShortCandidateTable.getCandidates(cell0.getSite(), cell0.getBel(), cell1.getSite(),
+                    cell1.getBel());
+        return candidates;
+    }
+
+    /**
+     * @return the logic tile that contains this short
+     */
+    public Tile getTile() { return cell0.getTileWire().getTile(); }
+
+    /**
+     * @return the switchbox tile this short is routed through, or the logic tile if the short cannot be routed
+     */
+    public Tile getSwitchboxTile() {
+        ShortCandidateTable.Candidates candidates = getCandidates();
+        return candidates.size() > 0 ? candidates.getSwitchboxTile(getTile(), 0) : getTile();
+    }
+
+    /**
+     * Connects every input pin of the LUT of this short to a config net. Each pin goes through Net.connect, which
+     * creates the logical port, the site pin and the route inside the site together, so the netlist and the physical
+     * net can't get out of step.
+     * @param configNet the config net
+     */
     public void connectConfigNet(Net configNet) {
-        for(int i = 0; i < 6; i++)
+        Cell lut = getLUTCell();
+        for (String inputPin : LUT_INPUT_PINS)
         {
-            connectConfigNet(configNet, i);
+            configNet.connect(lut, inputPin);
         }
     }
 
     public void connectConfigNet(Net configNet, int pinIdx) {
-        String inputPin = "I" + pinIdx;
-        Cell lut = cell0.getBel().isLUT() ? cell0.getCell() : cell1.getCell();
-        configNet.connect(lut, inputPin);
+        configNet.connect(getLUTCell(), LUT_INPUT_PINS[pinIdx]);
+    }
+
+    /**
+     * @return true if the inputs of this short's LUT are already connected to a config net
+     */
+    public boolean isConfigNetConnected() {
+        EDIFPortInst portInst = getLUTCell().getEDIFCellInst().getPortInst(LUT_INPUT_PINS[0]);
+        return portInst != null && portInst.getNet() != null;
     }
 
-    private void createShortedNet(Design d) {
-        net = d.createNet(cell0.getSite() + "_" + cell0.getBel() + "-" + cell1.getSite() + "_" + cell1.getBel().getName() + "-shorted_net");
+    /**
+     * @return the LUT cell of this short
+     */
+    public Cell getLUTCell() {
+        return cell0.getBel().isLUT() ? cell0.getCell() : cell1.getCell();
+    }
+
+    /**
+     * @return the number of LUT input pins that are connected to a config net
+     */
+    public static int getConfigPinCount() { return LUT_INPUT_PINS.length; }
+
+    private void createShortedNet(Design d, ShortNaming naming) {
+        net = d.createNet(naming.getNetName(cell0, cell1, id));
         net.connect(cell0.getCell(), cell0.getBelOutputPin());
         net.connect(cell1.getCell(), cell1.getBelOutputPin());
     }
 
-    private PIP routeToSwitchbox(Wire wire) {
-        for (PIP pip : wire.getForwardPIPs())
-        {
-            //this if statement gets the PIP that will eventually connect us to the larger switchbox
-            if(pip.getPIPType() == PIPType.DIRECTIONAL_NOT_BUFFERED21)
-            {
-                net.addPIP(pip);
-                return pip;
-            }
-        }
-        return null;
+    /**
+     * Gets the name of the net that shorts two cells together
+     * @param cell0 the first cell of the short
+     * @param cell1 the second cell of the short
+     * @return the name of the shorted net
+     */
+    static String getShortedNetName(ShortCell cell0, ShortCell cell1) {
+        return cell0.getSite() + "_" + cell0.getBel() + "-" + cell1.getSite() + "_" + cell1.getBel().getName() + "-shorted_net";
     }
 
     /**
@@ -182,6 +378,12 @@ public class Short
     public ShortCell getFirstCell() {return cell0;}
     public ShortCell getSecondCell() {return cell1;}
 
+    /**
+     * @return the ID this short's cells and net are named by, or -1 if it doesn't use compact naming
+     */
+    public int getId() { return id; }
+    void setId(int id) { this.id = id; }
+
     public Net getShortNet() { return net; }
     public void setShortNet(Net net) {this.net = net;}
 
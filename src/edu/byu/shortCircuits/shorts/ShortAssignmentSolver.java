@@ -0,0 +1,281 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.device.PIP;
+import com.xilinx.rapidwright.device.Tile;
+import edu.byu.shortCircuits.rapidWrightTools.UsedWireSet;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Assigns the shared end wires of each switchbox to the shorts routed through it so that as many shorting PIP pairs
+ * as possible are made. Short.findRoute greedily takes the first free end wires of each short, which can leave a
+ * later short of the same switchbox without enough end wires even though a different assignment would have routed
+ * both. This solver instead treats every switchbox as a b-matching problem (each short can get up to numOfShorts end
+ * wires, each end wire can be used by one short) and fills it with augmenting paths.
+ *
+ * Every short is first given up to minPerPair end wires. While some shorts are below the minimum, the one with the
+ * fewest end wires is left unrouted, its end wires are given back and the others try again with augmenting paths,
+ * so a short is only dropped once no reassignment can bring it to the minimum. The remaining shorts are then filled
+ * up to numOfShorts. With minPerPair = 1 this routes as many shorts as possible and makes as many shorting PIP pairs
+ * as possible. With a larger minPerPair, which shorts are dropped is a heuristic: the set of routed shorts is not
+ * guaranteed to be the largest one where every short gets the minimum, but for that set the number of shorting PIP
+ * pairs is still the most that can be made.
+ */
+public class ShortAssignmentSolver
+{
+    private final int numOfShorts;
+    private final int minPerPair;
+
+    /**
+     * Creates a solver
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @param minPerPair the fewest shorts a LUT-FF pair may be routed with (1 to maximize the total number of shorts,
+     *                   numOfShorts to only route pairs that get every short)
+     */
+    public ShortAssignmentSolver(int numOfShorts, int minPerPair)
+    {
+        if (minPerPair < 1 || minPerPair > numOfShorts)
+            throw new RuntimeException("ERROR: The minimum number of shorts per pair (" + minPerPair
+                    + ") must be between 1 and " + numOfShorts);
+        this.numOfShorts = numOfShorts;
+        this.minPerPair = minPerPair;
+    }
+
+    /**
+     * Finds the routes of the shorts. No routes are committed and the used wires are not changed.
+     * @param shorts the shorts to route
+     * @param usedWires the wires that are already in use
+     * @return the result of each short, in the same order as the shorts
+     */
+    public List<ShortRouteResult> solve(List<Short> shorts, UsedWireSet usedWires)
+    {
+        ShortRouteResult[] results = new ShortRouteResult[shorts.size()];
+        for (List<Integer> partition : partitionBySwitchbox(shorts).values())
+            solvePartition(shorts, partition, usedWires, results);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Finds the routes of the shorts, solving the switchboxes in parallel. The result is the same as
+     * solve(shorts, usedWires).
+     * @param shorts the shorts to route
+     * @param usedWires the wires that are already in use
+     * @param pool the pool to solve the switchboxes on
+     * @return the result of each short, in the same order as the shorts
+     */
+    public List<ShortRouteResult> solve(List<Short> shorts, UsedWireSet usedWires, ForkJoinPool pool)
+    {
+        ShortRouteResult[] results = new ShortRouteResult[shorts.size()];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (List<Integer> partition : partitionBySwitchbox(shorts).values())
+        {
+            tasks.add(() -> {
+                solvePartition(shorts, partition, usedWires, results);
+                return null;
+            });
+        }
+
+        try
+        {
+            for (Future<Void> future : pool.invokeAll(tasks))
+                future.get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException("Error! Could not assign shorts in parallel", e);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Groups shorts by the switchbox tile they are routed through. Shorts of different switchboxes never compete for
+     * the same end wires.
+     * @param shorts the shorts
+     * @return the indices of the shorts of each switchbox, in the order the switchboxes were first seen
+     */
+    static Map<Tile, List<Integer>> partitionBySwitchbox(List<Short> shorts)
+    {
+        Map<Tile, List<Integer>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < shorts.size(); i++)
+            partitions.computeIfAbsent(shorts.get(i).getSwitchboxTile(), k -> new ArrayList<>()).add(i);
+        return partitions;
+    }
+
+    private void solvePartition(List<Short> shorts, List<Integer> partition, UsedWireSet usedWires,
+                                ShortRouteResult[] results)
+    {
+        new Switchbox(shorts, partition, usedWires).solve(results);
+    }
+
+    /**
+     * The b-matching of one switchbox. Shorts are indexed by their position in the partition and end wires by the
+     * order they were first seen.
+     */
+    private class Switchbox
+    {
+        private final List<Integer> partition; // index of each pair in the list of shorts
+        private final Short[] pairs;
+        private final ShortCandidateTable.Candidates[] candidates;
+        private final int[][] wires; // end wire of each candidate of each pair, -1 if the wire is already used
+        private final int[] owner; // pair each end wire is assigned to, -1 if none
+        private final int[] load; // number of end wires assigned to each pair
+        private final boolean[] excluded; // pairs that are not routed
+        private final int[] visited;
+        private int stamp;
+
+        private Switchbox(List<Short> shorts, List<Integer> partition, UsedWireSet usedWires)
+        {
+            this.partition = partition;
+            int size = partition.size();
+            pairs = new Short[size];
+            candidates = new ShortCandidateTable.Candidates[size];
+            wires = new int[size][];
+            load = new int[size];
+            excluded = new boolean[size];
+
+            Map<Long, Integer> wireIds = new HashMap<>();
+            for (int p = 0; p < size; p++)
+            {
+                pairs[p] = shorts.get(partition.get(p));
+                candidates[p] = pairs[p].getCandidates();
+                if (!candidates[p].isRoutable())
+                {
+                    wires[p] = new int[0];
+                    excluded[p] = true;
+                    continue;
+                }
+
+                Tile tile = pairs[p].getTile();
+                wires[p] = new int[candidates[p].size()];
+                for (int i = 0; i < wires[p].length; i++)
+                {
+                    Tile switchbox = candidates[p].getSwitchboxTile(tile, i);
+                    int endWire = candidates[p].getEndWireIndex(i);
+                    if (usedWires.contains(switchbox, endWire))
+                    {
+                        wires[p][i] = -1;
+                        continue;
+                    }
+                    long key = ((long) switchbox.getUniqueAddress() << 32) | (endWire & 0xffffffffL);
+                    Integer id = wireIds.get(key);
+                    if (id == null)
+                    {
+                        id = wireIds.size();
+                        wireIds.put(key, id);
+                    }
+                    wires[p][i] = id;
+                }
+            }
+
+            owner = new int[wireIds.size()];
+            Arrays.fill(owner, -1);
+            visited = new int[wireIds.size()];
+        }
+
+        private void solve(ShortRouteResult[] results)
+        {
+            // every pair first gets the minimum, so that pairs later in the switchbox aren't starved by earlier ones
+            assign(minPerPair);
+
+            // pairs that couldn't get the minimum are dropped one at a time, fewest end wires first, and their end
+            // wires are offered to the pairs that are still short of the minimum before the next one is dropped
+            for (int p = getPairBelowMinimum(); p >= 0; p = getPairBelowMinimum())
+            {
+                for (int w : wires[p])
+                {
+                    if (w >= 0 && owner[w] == p)
+                        owner[w] = -1;
+                }
+                load[p] = 0;
+                excluded[p] = true;
+                assign(minPerPair);
+            }
+            assign(numOfShorts);
+
+            for (int p = 0; p < pairs.length; p++)
+                results[partition.get(p)] = getResult(p);
+        }
+
+        /**
+         * @return the routed pair with the fewest end wires among those below minPerPair (the last one on ties, so
+         *         pairs earlier in the switchbox are kept), or -1 if every routed pair has the minimum
+         */
+        private int getPairBelowMinimum()
+        {
+            int found = -1;
+            for (int p = 0; p < pairs.length; p++)
+            {
+                if (!excluded[p] && load[p] < minPerPair && (found < 0 || load[p] <= load[found]))
+                    found = p;
+            }
+            return found;
+        }
+
+        /**
+         * Adds end wires to every pair until it has the capacity or no augmenting path is left. An assigned end wire
+         * is only ever moved to another pair if its old pair can take a different one, so no pair loses end wires.
+         */
+        private void assign(int capacity)
+        {
+            for (int p = 0; p < pairs.length; p++)
+            {
+                if (excluded[p])
+                    continue;
+                while (load[p] < capacity)
+                {
+                    stamp++;
+                    if (!augment(p))
+                        break;
+                    load[p]++;
+                }
+            }
+        }
+
+        private boolean augment(int p)
+        {
+            for (int w : wires[p])
+            {
+                if (w < 0 || owner[w] == p || visited[w] == stamp)
+                    continue;
+                visited[w] = stamp;
+                if (owner[w] == -1 || augment(owner[w]))
+                {
+                    owner[w] = p;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private ShortRouteResult getResult(int p)
+        {
+            Short s = pairs[p];
+            if (!candidates[p].isRoutable())
+                return new ShortRouteResult(s, ShortRouteResult.Status.UNROUTABLE, numOfShorts, 0, null);
+            if (excluded[p])
+                return new ShortRouteResult(s, ShortRouteResult.Status.FAILED, numOfShorts, 0, null);
+
+            // the shorting PIPs are added in candidate order, the same order Short.findRoute uses
+            Tile tile = s.getTile();
+            List<PIP> route = candidates[p].getSwitchboxPIPs(tile);
+            stamp++;
+            for (int i = 0; i < wires[p].length; i++)
+            {
+                int w = wires[p][i];
+                if (w < 0 || owner[w] != p || visited[w] == stamp)
+                    continue;
+                visited[w] = stamp;
+                route.add(candidates[p].getShortPIP0(tile, i));
+                route.add(candidates[p].getShortPIP1(tile, i));
+            }
+
+            ShortRouteResult.Status status = load[p] == numOfShorts ?
+                    ShortRouteResult.Status.ROUTED : ShortRouteResult.Status.PARTIAL;
+            return new ShortRouteResult(s, status, numOfShorts, load[p], route);
+        }
+    }
+}
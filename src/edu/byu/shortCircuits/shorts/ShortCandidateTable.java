@@ -0,0 +1,385 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.device.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A table of all of the switchbox PIPs that can be used to short two BELs together. The shorting PIPs of a pair of
+ * tile wires only depend on the nodes the two wires drive into the larger switchbox: every PIP of a tile is defined by
+ * its tile type, so two nodes made of the same wires of the same tile types at the same positions relative to the
+ * logic tile have the same downhill PIPs. The candidates are therefore found once per tile type, pair of tile wires
+ * and layout of the two switchbox nodes, stored as wire indices relative to the logic tile, and applied to every
+ * other tile with the same layout without having to search through the downhill PIPs of the switchbox again. Most
+ * tiles of a type share one layout; tiles on the edges of the device, whose nodes are cut short, get their own.
+ */
+public class ShortCandidateTable
+{
+    // by device and tile type. Wire indices are only valid within a device, so every device has its own candidates
+    private static final Map<String, Map<TileTypeEnum, Map<Key, Candidates>>> table = new ConcurrentHashMap<>();
+    // the candidates already looked up for a pair of tile wires of a tile, so the switchbox nodes of a tile are only
+    // walked once. Tiles are only equal within a device, so this doesn't need to be split by device.
+    private static final Map<TileWires, Candidates> byTile = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the candidate shorting PIPs for the two provided tile wires. The result is computed the first time a pair
+     * of tile wires is seen for a tile type and switchbox node layout, and reused for every other tile of that type
+     * whose switchbox nodes are laid out the same way afterwards. The candidates found for a tile are remembered, so
+     * asking for the same tile wires again is a single lookup.
+     * @param tileWire0 The tile wire of the first shorted BEL
+     * @param tileWire1 The tile wire of the second shorted BEL. Must be within the same tile as tileWire0
+     * @return the candidate shorting PIPs for the two tile wires.
+     */
+    public static Candidates getCandidates(Wire tileWire0, Wire tileWire1)
+    {
+        Tile tile = tileWire0.getTile();
+        if (!tile.equals(tileWire1.getTile()))
+        {
+            throw new RuntimeException("ERROR: " + tileWire0 + " and " + tileWire1 + " are not within the same tile");
+        }
+
+        int wireIdx0 = tileWire0.getWireIndex();
+        int wireIdx1 = tileWire1.getWireIndex();
+        return byTile.computeIfAbsent(new TileWires(tile, wireIdx0, wireIdx1),
+                k -> lookUp(tile, wireIdx0, wireIdx1, new SwitchboxNodes(tile, wireIdx0, wireIdx1)));
+    }
+
+    /**
+     * Gets the candidate shorting PIPs for two shortable BELs of the same tile. The tile wires of the BELs and the
+     * PIPs that connect them to the larger switchbox are taken from the cached resolutions of ShortCell, so no PIPs
+     * have to be searched to find the switchbox nodes.
+     * @param site0 The site of the first shorted BEL
+     * @param bel0 The first shorted BEL
+     * @param site1 The site of the second shorted BEL. Must be within the same tile as site0
+     * @param bel1 The second shorted BEL
+     * @return the candidate shorting PIPs for the two BELs.
+     */
+    public static Candidates getCandidates(Site site0, BEL bel0, Site site1, BEL bel1)
+    {
+        Wire tileWire0 = ShortCell.getTileWire(site0, bel0);
+        Wire tileWire1 = ShortCell.getTileWire(site1, bel1);
+        if (tileWire0 == null || tileWire1 == null)
+        {
+            throw new RuntimeException("ERROR: " + site0 + "/" + bel0.getName() + " and " + site1 + "/"
+                    + bel1.getName() + " can't both be shorted");
+        }
+        Tile tile = tileWire0.getTile();
+        if (!tile.equals(tileWire1.getTile()))
+        {
+            throw new RuntimeException("ERROR: " + site0 + " and " + site1 + " are not within the same tile");
+        }
+
+        int wireIdx0 = tileWire0.getWireIndex();
+        int wireIdx1 = tileWire1.getWireIndex();
+        return byTile.computeIfAbsent(new TileWires(tile, wireIdx0, wireIdx1),
+                k -> lookUp(tile, wireIdx0, wireIdx1, new SwitchboxNodes(tile, wireIdx0, wireIdx1,
+                        ShortCell.getSwitchboxPIP(site0, bel0), ShortCell.getSwitchboxPIP(site1, bel1))));
+    }
+
+    /**
+     * Finds the candidates of a tile that hasn't been looked up yet in the table of its tile type and node layout
+     */
+    private static Candidates lookUp(Tile tile, int wireIdx0, int wireIdx1, SwitchboxNodes nodes)
+    {
+        Key key = new Key(wireIdx0, wireIdx1, nodes.getLayout(tile));
+        Map<Key, Candidates> tileTable = table.computeIfAbsent(tile.getDevice().getName(),
+                k -> new ConcurrentHashMap<>()).computeIfAbsent(tile.getTileTypeEnum(), k -> new ConcurrentHashMap<>());
+        return tileTable.computeIfAbsent(key, k -> findCandidates(tile, nodes));
+    }
+
+    /**
+     * Clears all of the cached candidates.
+     */
+    public static void clear()
+    {
+        table.clear();
+        byTile.clear();
+    }
+
+    /**
+     * Finds the PIP that connects the tile wire of a BEL to the larger switchbox.
+     * @param wire the tile wire of a shortable BEL
+     * @return the PIP that will eventually connect the wire to the larger switchbox or null if none exists.
+     */
+    static PIP findSwitchboxPIP(Wire wire)
+    {
+        for (PIP pip : wire.getForwardPIPs())
+        {
+            //this if statement gets the PIP that will eventually connect us to the larger switchbox
+            if(pip.getPIPType() == PIPType.DIRECTIONAL_NOT_BUFFERED21)
+            {
+                return pip;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches the switchbox for all of the PIPs that can short the two tile wires together.
+     */
+    private static Candidates findCandidates(Tile tile, SwitchboxNodes nodes)
+    {
+        List<PIP[]> shortPips = new ArrayList<>();
+        if (nodes.node0 == null || nodes.node1 == null)
+            return new Candidates(tile, false, null, null, shortPips);
+
+        //finds all of the pips in the larger switch box that can be connected to BEL0
+        for (PIP shortPip0 : nodes.node0.getAllDownhillPIPs())
+        {
+            //finds all of the pips in the larger switch box that can be connected to BEL1
+            for (PIP shortPip1 : nodes.node1.getAllDownhillPIPs())
+            {
+                // the two pips short the BELs if their end wires are the same as each other
+                if (shortPip0.getEndWire().equals(shortPip1.getEndWire()))
+                {
+                    shortPips.add(new PIP[]{shortPip0, shortPip1});
+                }
+            }
+        }
+
+        return new Candidates(tile, true, nodes.pip0, nodes.pip1, shortPips);
+    }
+
+    /**
+     * The nodes that two tile wires reach into the larger switchbox with, either through a PIP or directly from the
+     * tile wire
+     */
+    private static class SwitchboxNodes
+    {
+        private final PIP pip0;
+        private final PIP pip1;
+        private final Node node0;
+        private final Node node1;
+
+        /**
+         * Finds the switchbox PIPs of the tile wires by searching their forward PIPs
+         */
+        private SwitchboxNodes(Tile tile, int wireIdx0, int wireIdx1)
+        {
+            this(tile, wireIdx0, wireIdx1, findSwitchboxPIP(tile, wireIdx0), findSwitchboxPIP(tile, wireIdx1));
+        }
+
+        /**
+         * Uses switchbox PIPs that have already been found (see ShortCell.getSwitchboxPIP)
+         */
+        private SwitchboxNodes(Tile tile, int wireIdx0, int wireIdx1, PIP switchboxPIP0, PIP switchboxPIP1)
+        {
+            if (DeviceFamily.of(tile.getDevice()).hasSwitchboxPIP())
+            {
+                pip0 = switchboxPIP0;
+                pip1 = switchboxPIP1;
+                node0 = pip0 == null ? null : pip0.getEndNode();
+                node1 = pip1 == null ? null : pip1.getEndNode();
+            }
+            else
+            {
+                pip0 = null;
+                pip1 = null;
+                node0 = new Wire(tile, wireIdx0).getNode();
+                node1 = new Wire(tile, wireIdx1).getNode();
+            }
+        }
+
+        private static PIP findSwitchboxPIP(Tile tile, int wireIdx)
+        {
+            DeviceFamily family = DeviceFamily.of(tile.getDevice());
+            return family.hasSwitchboxPIP() ? family.getSwitchboxPIP(new Wire(tile, wireIdx)) : null;
+        }
+
+        /**
+         * Gets the wires of both nodes as (row offset, column offset, tile type, wire index) relative to the logic
+         * tile. The downhill PIPs of the nodes, and so the candidates, only depend on this layout.
+         */
+        private int[] getLayout(Tile tile)
+        {
+            Wire[] wires0 = node0 == null ? new Wire[0] : node0.getAllWiresInNode();
+            Wire[] wires1 = node1 == null ? new Wire[0] : node1.getAllWiresInNode();
+            int[] layout = new int[2 + 4 * (wires0.length + wires1.length)];
+            int i = 0;
+            for (Wire[] wires : new Wire[][]{wires0, wires1})
+            {
+                layout[i++] = wires.length;
+                for (Wire wire : wires)
+                {
+                    Tile wireTile = wire.getTile();
+                    layout[i++] = wireTile.getRow() - tile.getRow();
+                    layout[i++] = wireTile.getColumn() - tile.getColumn();
+                    layout[i++] = wireTile.getTileTypeEnum().ordinal();
+                    layout[i++] = wire.getWireIndex();
+                }
+            }
+            return layout;
+        }
+    }
+
+    /**
+     * A pair of tile wires of one tile
+     */
+    private static class TileWires
+    {
+        private final Tile tile;
+        private final int wireIdx0;
+        private final int wireIdx1;
+
+        private TileWires(Tile tile, int wireIdx0, int wireIdx1)
+        {
+            this.tile = tile;
+            this.wireIdx0 = wireIdx0;
+            this.wireIdx1 = wireIdx1;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof TileWires))
+                return false;
+            TileWires other = (TileWires) o;
+            return wireIdx0 == other.wireIdx0 && wireIdx1 == other.wireIdx1 && tile.equals(other.tile);
+        }
+
+        @Override
+        public int hashCode() { return 31 * (31 * tile.hashCode() + wireIdx0) + wireIdx1; }
+    }
+
+    /**
+     * Identifies the candidates of a pair of tile wires within a tile type by the wires and their switchbox node layout
+     */
+    private static class Key
+    {
+        private final int wireIdx0;
+        private final int wireIdx1;
+        private final int[] layout;
+        private final int hash;
+
+        private Key(int wireIdx0, int wireIdx1, int[] layout)
+        {
+            this.wireIdx0 = wireIdx0;
+            this.wireIdx1 = wireIdx1;
+            this.layout = layout;
+            hash = 31 * (31 * wireIdx0 + wireIdx1) + Arrays.hashCode(layout);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return wireIdx0 == other.wireIdx0 && wireIdx1 == other.wireIdx1 && Arrays.equals(layout, other.layout);
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+    }
+
+    /**
+     * The candidate shorting PIPs of a pair of tile wires. The PIPs are stored relative to the logic tile that
+     * contains the tile wires, so they have to be applied to a concrete tile to get the actual PIPs.
+     */
+    public static class Candidates
+    {
+        private final boolean routable;
+        private final int[] switchboxPIP0; // start and end wire of the PIP connecting the first BEL to the switchbox.
+                                           // null if the family doesn't need one
+        private final int[] switchboxPIP1; // start and end wire of the PIP connecting the second BEL to the switchbox
+
+        // The following arrays are indexed by candidate, in the order the candidates were found.
+        private final int[] rowOffsets; // row offset of the switchbox tile from the logic tile
+        private final int[] columnOffsets; // column offset of the switchbox tile from the logic tile
+        private final int[] startWires0; // start wire of the PIP driven by the first BEL
+        private final int[] startWires1; // start wire of the PIP driven by the second BEL
+        private final int[] endWires; // the shared end wire that shorts the two BELs
+
+        private Candidates(Tile tile, boolean routable, PIP pip0, PIP pip1, List<PIP[]> shortPips)
+        {
+            this.routable = routable;
+            switchboxPIP0 = pip0 != null ? new int[]{pip0.getStartWireIndex(), pip0.getEndWireIndex()} : null;
+            switchboxPIP1 = pip1 != null ? new int[]{pip1.getStartWireIndex(), pip1.getEndWireIndex()} : null;
+
+            int size = shortPips.size();
+            rowOffsets = new int[size];
+            columnOffsets = new int[size];
+            startWires0 = new int[size];
+            startWires1 = new int[size];
+            endWires = new int[size];
+
+            for (int i = 0; i < size; i++)
+            {
+                PIP shortPip0 = shortPips.get(i)[0];
+                PIP shortPip1 = shortPips.get(i)[1];
+                Tile switchbox = shortPip0.getTile();
+                rowOffsets[i] = switchbox.getRow() - tile.getRow();
+                columnOffsets[i] = switchbox.getColumn() - tile.getColumn();
+                startWires0[i] = shortPip0.getStartWireIndex();
+                startWires1[i] = shortPip1.getStartWireIndex();
+                endWires[i] = shortPip0.getEndWireIndex();
+            }
+        }
+
+        /**
+         * @return true if both BELs can reach the larger switchbox, otherwise false.
+         */
+        public boolean isRoutable() { return routable; }
+
+        /**
+         * @return the number of candidate shorts
+         */
+        public int size() { return endWires.length; }
+
+        /**
+         * Gets the PIPs that connect both BELs to the larger switchbox
+         * @param tile the logic tile that contains the shorted BELs
+         * @return the PIPs in the provided tile. Empty if the BELs reach the switchbox without a PIP.
+         */
+        public List<PIP> getSwitchboxPIPs(Tile tile)
+        {
+            List<PIP> pips = new ArrayList<>(2);
+            if (switchboxPIP0 != null)
+                pips.add(new PIP(tile, switchboxPIP0[0], switchboxPIP0[1]));
+            if (switchboxPIP1 != null)
+                pips.add(new PIP(tile, switchboxPIP1[0], switchboxPIP1[1]));
+            return pips;
+        }
+
+        /**
+         * Gets the switchbox tile that contains a candidate short
+         * @param tile the logic tile that contains the shorted BELs
+         * @param i index of the candidate
+         * @return the switchbox tile
+         */
+        public Tile getSwitchboxTile(Tile tile, int i)
+        {
+            return tile.getDevice().getTile(tile.getRow() + rowOffsets[i], tile.getColumn() + columnOffsets[i]);
+        }
+
+        /**
+         * @param i index of the candidate
+         * @return the wire index (within the switchbox tile) of the shared end wire of a candidate short
+         */
+        public int getEndWireIndex(int i) { return endWires[i]; }
+
+        /**
+         * Gets the shorting PIP driven by the first BEL
+         * @param tile the logic tile that contains the shorted BELs
+         * @param i index of the candidate
+         * @return the PIP
+         */
+        public PIP getShortPIP0(Tile tile, int i) { return new PIP(getSwitchboxTile(tile, i), startWires0[i], endWires[i]); }
+
+        /**
+         * Gets the shorting PIP driven by the second BEL
+         * @param tile the logic tile that contains the shorted BELs
+         * @param i index of the candidate
+         * @return the PIP
+         */
+        public PIP getShortPIP1(Tile tile, int i) { return new PIP(getSwitchboxTile(tile, i), startWires1[i], endWires[i]); }
+    }
+}
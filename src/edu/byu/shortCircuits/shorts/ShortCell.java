@@ -2,8 +2,13 @@ package edu.byu.shortCircuits.shorts;
 
 import com.xilinx.rapidwright.design.*;
 import com.xilinx.rapidwright.device.*;
+import com.xilinx.rapidwright.edif.EDIFPropertyValue;
+import com.xilinx.rapidwright.edif.EDIFValueType;
 import edu.byu.shortCircuits.rapidWrightTools.BELID;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * This class contains everything needed to short two BELs together. It is made
  * up of a number of RapidWright Objects. This class is heavily used by methods
@@ -16,6 +21,21 @@ import edu.byu.shortCircuits.rapidWrightTools.BELID;
  */
 public class ShortCell {
 
+  // caches how the output of each BEL reaches the switchbox, by device, tile type, site index in tile and BEL name.
+  // Every tile of a type is wired the same way within a device, so this only has to be looked up once per BEL of a
+  // tile type. Wire indices are only valid within a device, so every device has its own entries
+  private static final Map<ResolutionKey, Resolution> resolutions = new ConcurrentHashMap<>();
+
+  // The INIT values of LUTs and FFs, indexed by LogicValue ordinal. When shared prototypes are used, every short cell
+  // refers to one of these instead of creating its own property value, and INIT is left out of the netlist when it is
+  // already the Unisim default (LUT6 INIT=64'h0, FDSE INIT=1'b1)
+  private static final EDIFPropertyValue[] LUT_INITS = {
+          new EDIFPropertyValue("64'h0", EDIFValueType.STRING),
+          new EDIFPropertyValue("64'hffffffffffffffff", EDIFValueType.STRING)};
+  private static final EDIFPropertyValue[] FF_INITS = {
+          new EDIFPropertyValue("0", EDIFValueType.INTEGER),
+          new EDIFPropertyValue("1", EDIFValueType.INTEGER)};
+
   private Cell cell; // Cell that contains the shortable BEL
   private LogicValue outputValue; // The logic  the shortable BEL (HIGH or LOW)
   private Wire tileWire; // The tile wire that the BEL will be connected to.
@@ -24,6 +44,7 @@ public class ShortCell {
                          // to short this BEL to Another BEL
   private String belOutputPin; // The Name of the output Pin of this BEL. This is used in
                     // order to hook up nets to two shortable PIPs
+  private boolean sharedPrototypes; // true if INIT is written with the shared property values
 
 
   /**
@@ -33,47 +54,96 @@ public class ShortCell {
    * @param bel The shortable BEL
    */
   public ShortCell(Design d, Site site, BEL bel, LogicValue logicValue) {
+    this(d, site, bel, logicValue, ShortNaming.getVerboseCellName(site, bel));
+  }
+
+  /**
+   * Creates a ShortBel object with a cell of the given name.
+   * @param d The design that this shortable BEL is in
+   * @param site The site that contains the shortable BEL
+   * @param bel The shortable BEL
+   * @param cellName The name of the cell placed on the BEL
+   */
+  public ShortCell(Design d, Site site, BEL bel, LogicValue logicValue, String cellName) {
+    this(d, site, bel, logicValue, cellName, false);
+  }
+
+  /**
+   * Creates a ShortBel object with a cell of the given name.
+   * @param d The design that this shortable BEL is in
+   * @param site The site that contains the shortable BEL
+   * @param bel The shortable BEL
+   * @param cellName The name of the cell placed on the BEL
+   * @param sharedPrototypes true to only write INIT when it differs from the Unisim default, using a property value
+   *                         shared by every cell with the same configuration (see ShortedDesign.setSharedPrototypes)
+   */
+  public ShortCell(Design d, Site site, BEL bel, LogicValue logicValue, String cellName, boolean sharedPrototypes) {
     // makes sure that the site is a logic site (only sites that are currently
     // supported for shorts)
     checkIfLogicSite(site);
 
     this.outputValue = logicValue;
-    createAndPlaceCell(d, site, bel);
+    this.sharedPrototypes = sharedPrototypes;
+    createAndPlaceCell(d, site, bel, cellName);
 
     // finds tile wire and stores it as a member variable
     findTileWire();
   }
 
+  /**
+   * Creates a ShortCell from a cell that has already been placed in a design (e.g. when reattaching shorts to a
+   * design that was reloaded from a checkpoint).
+   * @param cell The placed cell of the shortable BEL
+   * @param logicValue The logic value the cell was configured with
+   */
+  public ShortCell(Cell cell, LogicValue logicValue) {
+    checkIfLogicSite(cell.getSite());
+
+    this.cell = cell;
+    this.outputValue = logicValue;
+    this.belOutputPin = cell.getBEL().getBELType().contains("LUT") ? "O" : "Q";
+
+    findTileWire();
+  }
+
   /**
    * This function creates a cell that contains the shortable bel and places it
    * within the design. This method relies on data members and must be called
    * manually if one would like to use the BEL to make a short (as opposed to
    * using the BEL just to find a short).
    */
-  private void createAndPlaceCell(Design d, Site site, BEL bel) {
+  private void createAndPlaceCell(Design d, Site site, BEL bel, String cellName) {
 
     String loc = site.toString() + "/" + bel.getName();
-    String cellName =
-            "shortCell_" + site.getName() + "_" + bel.getName();
     if (bel.getBELType().contains("LUT")) // places a lut1 if the ShortBELType has been set to LUT
     {
-      cell = d.createAndPlaceCell( cellName + "_inst", Unisim.LUT6, loc);
-      String initString = outputValue == LogicValue.LOW ? "64'h0" : "64'hffffffffffffffff";
-      cell.addProperty("INIT", initString);
+      cell = d.createAndPlaceCell(cellName, Unisim.LUT6, loc);
+      if (!sharedPrototypes) {
+        String initString = outputValue == LogicValue.LOW ? "64'h0" : "64'hffffffffffffffff";
+        cell.addProperty("INIT", initString);
+      }
+      else if (outputValue != LogicValue.LOW) {
+        cell.getEDIFCellInst().addProperty("INIT", LUT_INITS[outputValue.ordinal()]);
+      }
 
       this.belOutputPin = "O";
       fixPins();
     }
     else // places a FDSE if the ShortBELType has been set to FF_INIT or FF_REG
     {
-      cell = d.createAndPlaceCell(cellName + "_inst", Unisim.FDSE, loc);
+      cell = d.createAndPlaceCell(cellName, Unisim.FDSE, loc);
       int ffConfig = outputValue.toInt();
 //      if (ffConfig != BELConfig.INV.toInt() || ffConfig != BELConfig.BUF.toInt())
 //      {
 //        String errorConfig = ffConfig == BELConfig.INV.toInt() ? "INV" : "BUF";
 //        throw new RuntimeException("ERROR! BEL Configuration, " + errorConfig + ", is not compitable with FFs!");
 //      }
-      cell.getEDIFCellInst().addProperty("INIT", ffConfig);
+      if (!sharedPrototypes) {
+        cell.getEDIFCellInst().addProperty("INIT", ffConfig);
+      }
+      else if (outputValue != LogicValue.HIGH) {
+        cell.getEDIFCellInst().addProperty("INIT", FF_INITS[outputValue.ordinal()]);
+      }
 
       this.belOutputPin = "Q";
     }
@@ -106,27 +176,116 @@ public class ShortCell {
    * Finds the tile wire and stores it as a member variable
    */
   private void findTileWire() {
-    String sitePinName;
-    String type = getType();
-    String id = getID();
-    // These if-else statements correlate the LUT to a string that vivado uses
-    // to identify the site pin they are connected to
-    if (type.contains("LUT")) {
-      sitePinName = id;
-    } else if (type.equals("REG_INIT")) {
-      sitePinName = id + "Q";
-    } else if (type.equals("FF_INIT")) {
-      sitePinName = id + "MUX";
-    }
-    else {
+    this.tileWire = getTileWire(getSite(), getBel());
+    if (tileWire == null) {
       throw new RuntimeException("Error! Could not find tile wire for shortCell " + cell.toString());
     }
+  }
+
+  /**
+   * Finds the tile wire that a shortable BEL drives. This only uses device data, so it can be used without placing a
+   * cell on the BEL.
+   * @param site The site that contains the BEL
+   * @param bel The shortable BEL
+   * @return the tile wire, or null if the BEL is not shortable
+   */
+  public static Wire getTileWire(Site site, BEL bel) {
+    Resolution resolution = getResolution(site, bel);
+    if (resolution.tileWire < 0) {
+      return null;
+    }
+    return new Wire(site.getTile(), resolution.tileWire);
+  }
+
+  /**
+   * Finds the PIP that connects the tile wire of a shortable BEL to the larger switchbox.
+   * @param site The site that contains the BEL
+   * @param bel The shortable BEL
+   * @return the PIP, or null if the BEL is not shortable or its family doesn't need one
+   */
+  public static PIP getSwitchboxPIP(Site site, BEL bel) {
+    Resolution resolution = getResolution(site, bel);
+    if (resolution.switchboxStartWire < 0) {
+      return null;
+    }
+    return new PIP(site.getTile(), resolution.switchboxStartWire, resolution.switchboxEndWire);
+  }
+
+  /**
+   * Clears the cached tile wires and switchbox PIPs of every tile type.
+   */
+  public static void clearResolutionCache() { resolutions.clear(); }
+
+  private static Resolution getResolution(Site site, BEL bel) {
+    Tile tile = site.getTile();
+    ResolutionKey key = new ResolutionKey(tile.getDevice().getName(), tile.getTileTypeEnum(),
+            site.getSiteIndexInTile(), bel.getName());
+    return resolutions.computeIfAbsent(key, k -> resolve(site, bel));
+  }
+
+  private static Resolution resolve(Site site, BEL bel) {
+    DeviceFamily family = DeviceFamily.of(site.getTile().getDevice());
+    String sitePinName = family.getSitePinName(bel);
+    if (sitePinName == null) {
+      return new Resolution(-1, null);
+    }
 
-    Site site = getSite();
-    // gets the tile wire from the constructed sitePin string up above
+    // gets the tile wire from the site pin of the BEL
     SitePin sitePin = new SitePin(site, sitePinName);
-    this.tileWire =
-        new Wire(site.getTile(), site.getTile().getWireFromSitePin(sitePin));
+    int tileWire = site.getTile().getWireFromSitePin(sitePin);
+    PIP switchboxPIP = family.getSwitchboxPIP(new Wire(site.getTile(), tileWire));
+    return new Resolution(tileWire, switchboxPIP);
+  }
+
+  /**
+   * Identifies a BEL of a tile type within a device
+   */
+  private static class ResolutionKey {
+    private final String deviceName;
+    private final TileTypeEnum tileType;
+    private final int siteIndex;
+    private final String belName;
+    private final int hash;
+
+    private ResolutionKey(String deviceName, TileTypeEnum tileType, int siteIndex, String belName) {
+      this.deviceName = deviceName;
+      this.tileType = tileType;
+      this.siteIndex = siteIndex;
+      this.belName = belName;
+      hash = 31 * (31 * (31 * deviceName.hashCode() + tileType.hashCode()) + siteIndex) + belName.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ResolutionKey)) {
+        return false;
+      }
+      ResolutionKey other = (ResolutionKey) o;
+      return tileType == other.tileType && siteIndex == other.siteIndex && belName.equals(other.belName)
+              && deviceName.equals(other.deviceName);
+    }
+
+    @Override
+    public int hashCode() { return hash; }
+  }
+
+  /**
+   * The tile wire of a shortable BEL and the PIP connecting it to the larger switchbox, as wire indices within the
+   * logic tile.
+   */
+  private static class Resolution {
+    private final int tileWire;
+    private final int switchboxStartWire;
+    private final int switchboxEndWire;
+
+    private Resolution(int tileWire, PIP switchboxPIP) {
+      this.tileWire = tileWire;
+      this.switchboxStartWire = switchboxPIP == null ? -1 : switchboxPIP.getStartWireIndex();
+      this.switchboxEndWire = switchboxPIP == null ? -1 : switchboxPIP.getEndWireIndex();
+    }
   }
 
   /**
@@ -152,5 +311,7 @@ public class ShortCell {
 
   public Wire getTileWire() { return tileWire; }
 
+  public PIP getSwitchboxPIP() { return getSwitchboxPIP(getSite(), getBel()); }
+
   public String getBelOutputPin() { return belOutputPin; }
 }
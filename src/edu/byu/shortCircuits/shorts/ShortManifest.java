@@ -0,0 +1,218 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.design.Cell;
+import com.xilinx.rapidwright.design.Design;
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.design.SiteInst;
+import com.xilinx.rapidwright.device.*;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compact binary file that describes the shorts of a design. The manifest is written next to the checkpoint of a
+ * shorted design and can be used to reattach the shorts to the design once the checkpoint has been reloaded, without
+ * having to rebuild the names of every cell and net.
+ *
+ * The file starts with a header (magic number, version, number of shorts) followed by one record per short:
+ * <pre>
+ *   short  row of the logic tile
+ *   short  column of the logic tile
+ *   byte   index of each site within the tile (x2)
+ *   short  index of each BEL within its site (x2)
+ *   byte   logic value of each cell (x2)
+ *   int    ID of the short if it uses compact naming, otherwise -1 (since version 2)
+ *   byte   number of shorted end wires
+ *   per end wire: short row and short column of its tile, int wire index
+ * </pre>
+ */
+public class ShortManifest
+{
+    private static final int MAGIC = 0x5343414D; // "SCAM"
+    private static final int VERSION = 2;
+    private static final String EXTENSION = ".shorts";
+
+    /**
+     * Gets the path of the manifest that belongs next to a checkpoint, i.e. shorts.dcp becomes shorts.shorts
+     * @param dcpPath path of the checkpoint
+     * @return path of the manifest
+     */
+    public static String getManifestPath(String dcpPath)
+    {
+        if (dcpPath.endsWith(".dcp"))
+            dcpPath = dcpPath.substring(0, dcpPath.length() - ".dcp".length());
+        return dcpPath + EXTENSION;
+    }
+
+    /**
+     * Writes a manifest of the shorts
+     * @param shorts the shorts to write
+     * @param path path of the manifest file
+     */
+    public static void write(Collection<Short> shorts, String path)
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(shorts.size());
+            for (Short s : shorts)
+            {
+                ShortCell c0 = s.getFirstCell();
+                ShortCell c1 = s.getSecondCell();
+                Tile tile = c0.getSite().getTile();
+                out.writeShort(tile.getRow());
+                out.writeShort(tile.getColumn());
+                out.writeByte(c0.getSite().getSiteIndexInTile());
+                out.writeByte(c1.getSite().getSiteIndexInTile());
+                out.writeShort(getBELIndex(c0.getSite(), c0.getBel()));
+                out.writeShort(getBELIndex(c1.getSite(), c1.getBel()));
+                out.writeByte(c0.getOutputValue().ordinal());
+                out.writeByte(c1.getOutputValue().ordinal());
+                out.writeInt(s.getId());
+
+                List<Wire> endWires = getShortedEndWires(s.getShortNet());
+                out.writeByte(endWires.size());
+                for (Wire wire : endWires)
+                {
+                    out.writeShort(wire.getTile().getRow());
+                    out.writeShort(wire.getTile().getColumn());
+                    out.writeInt(wire.getWireIndex());
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error! Could not write short manifest " + path, e);
+        }
+    }
+
+    /**
+     * Reads a manifest and reattaches the shorts it describes to the design. The cells and nets of the shorts must
+     * already exist in the design (e.g. because it was reloaded from the checkpoint the manifest was written with).
+     * @param d the design that contains the shorts
+     * @param path path of the manifest file
+     * @return the shorts of the design
+     */
+    public static List<Short> read(Design d, String path)
+    {
+        return read(d, path, null);
+    }
+
+    /**
+     * Reads a manifest and reattaches the shorts it describes to the design.
+     * @param d the design that contains the shorts
+     * @param path path of the manifest file
+     * @param endWires if not null, the shorted end wires of every short are added to this list
+     * @return the shorts of the design
+     */
+    public static List<Short> read(Design d, String path, List<Wire> endWires)
+    {
+        Device device = d.getDevice();
+        LogicValue[] logicValues = LogicValue.values();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC)
+                throw new RuntimeException("Error! " + path + " is not a short manifest");
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION)
+                throw new RuntimeException("Error! Unsupported short manifest version " + version + " in " + path);
+
+            int count = buffer.getInt();
+            List<Short> shorts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                Tile tile = device.getTile(buffer.getShort(), buffer.getShort());
+                Site site0 = tile.getSites()[buffer.get() & 0xff];
+                Site site1 = tile.getSites()[buffer.get() & 0xff];
+                BEL bel0 = site0.getBELs()[buffer.getShort() & 0xffff];
+                BEL bel1 = site1.getBELs()[buffer.getShort() & 0xffff];
+                ShortCell c0 = new ShortCell(getCell(d, site0, bel0), logicValues[buffer.get() & 0xff]);
+                ShortCell c1 = new ShortCell(getCell(d, site1, bel1), logicValues[buffer.get() & 0xff]);
+
+                int id = version >= 2 ? buffer.getInt() : -1;
+
+                Net net = getOutputNet(c0);
+                if (net == null || net != getOutputNet(c1))
+                    throw new RuntimeException("Error! Cells " + c0.getCellName() + " and " + c1.getCellName()
+                            + " are not driving the same net!");
+                shorts.add(new Short(c0, c1, net, id));
+
+                int wireCount = buffer.get() & 0xff;
+                for (int w = 0; w < wireCount; w++)
+                {
+                    Tile wireTile = device.getTile(buffer.getShort(), buffer.getShort());
+                    int wireIndex = buffer.getInt();
+                    if (endWires != null)
+                        endWires.add(new Wire(wireTile, wireIndex));
+                }
+            }
+            return shorts;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error! Could not read short manifest " + path, e);
+        }
+    }
+
+    private static Cell getCell(Design d, Site site, BEL bel)
+    {
+        SiteInst siteInst = d.getSiteInstFromSite(site);
+        Cell cell = siteInst == null ? null : siteInst.getCell(bel.getName());
+        if (cell == null)
+            throw new RuntimeException("Error! No cell is placed on " + site.getName() + "/" + bel.getName());
+        return cell;
+    }
+
+    /**
+     * Gets the net driven by a cell from the site wire of its output pin, so the net is found without building its
+     * name (and still found if it was renamed).
+     */
+    private static Net getOutputNet(ShortCell shortCell)
+    {
+        Cell cell = shortCell.getCell();
+        String siteWire = cell.getSiteWireNameFromLogicalPin(shortCell.getBelOutputPin());
+        return siteWire == null ? null : cell.getSiteInst().getNetFromSiteWire(siteWire);
+    }
+
+    private static int getBELIndex(Site site, BEL bel)
+    {
+        BEL[] bels = site.getBELs();
+        for (int i = 0; i < bels.length; i++)
+        {
+            if (bels[i].getName().equals(bel.getName()))
+                return i;
+        }
+        throw new RuntimeException("Error! BEL " + bel.getName() + " is not in site " + site.getName());
+    }
+
+    /**
+     * Gets the end wires that short the net, i.e. the end wires that are driven by more than one of its PIPs.
+     */
+    private static List<Wire> getShortedEndWires(Net net)
+    {
+        List<Wire> endWires = new ArrayList<>();
+        List<PIP> pips = net.getPIPs();
+        for (int i = 0; i < pips.size(); i++)
+        {
+            Wire endWire = pips.get(i).getEndWire();
+            for (int j = i + 1; j < pips.size(); j++)
+            {
+                if (endWire.equals(pips.get(j).getEndWire()))
+                {
+                    endWires.add(endWire);
+                    break;
+                }
+            }
+        }
+        return endWires;
+    }
+}
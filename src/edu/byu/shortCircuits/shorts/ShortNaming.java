@@ -0,0 +1,233 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.device.BEL;
+import com.xilinx.rapidwright.device.Site;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Names the cells and nets of shorts. By default every name spells out the site and BEL of the cells
+ * (e.g. shortCell_SLICE_X0Y0_A6LUT_inst and SLICE_X0Y0_A6LUT-SLICE_X0Y0_AFF-shorted_net). With compact naming each
+ * short instead gets a base 36 ID and its cells and nets are named __sc_&lt;id&gt;a, __sc_&lt;id&gt;b and
+ * __sn_&lt;id&gt;, which keeps large designs (and their checkpoints) much smaller. The prefixes are reserved for
+ * shorts, so they don't collide with the names of the cells and nets of the rest of the design. The long names of
+ * compact shorts can be written to a sidecar file next to the checkpoint with writeNameMap.
+ */
+public class ShortNaming
+{
+    /**
+     * Names every short after the sites and BELs of its cells
+     */
+    public static final ShortNaming VERBOSE = new ShortNaming(false, 0);
+
+    private static final String NAME_MAP_EXTENSION = ".names";
+    private static final int RADIX = 36;
+    private static final String CELL_PREFIX = "__sc_";
+    private static final String NET_PREFIX = "__sn_";
+
+    private final boolean compact;
+    private final AtomicInteger nextId;
+
+    /**
+     * Creates a compact naming whose IDs start at 0
+     */
+    public ShortNaming()
+    {
+        this(true, 0);
+    }
+
+    /**
+     * Creates a compact naming
+     * @param firstId the ID of the first short that will be named. Used to continue naming the shorts of a design
+     *                that already has compact shorts.
+     */
+    public ShortNaming(int firstId)
+    {
+        this(true, firstId);
+    }
+
+    private ShortNaming(boolean compact, int firstId)
+    {
+        this.compact = compact;
+        this.nextId = new AtomicInteger(firstId);
+    }
+
+    /**
+     * @return true if shorts are named by ID
+     */
+    public boolean isCompact() { return compact; }
+
+    /**
+     * Reserves the ID of a new short
+     * @return the ID, or -1 if shorts are not named by ID
+     */
+    public int nextId()
+    {
+        return compact ? nextId.getAndIncrement() : -1;
+    }
+
+    /**
+     * Makes sure an ID that is already used by a short (e.g. one reloaded from a checkpoint) is never handed out again
+     * @param id the used ID
+     */
+    public void reserve(int id)
+    {
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Gets the name of a cell of a short
+     * @param site the site the cell is placed on
+     * @param bel the BEL the cell is placed on
+     * @param id the ID of the short (ignored if shorts are not named by ID)
+     * @param index 0 for the first cell of the short, 1 for the second
+     * @return the name of the cell
+     */
+    public String getCellName(Site site, BEL bel, int id, int index)
+    {
+        if (!compact)
+            return getVerboseCellName(site, bel);
+        return CELL_PREFIX + Integer.toString(id, RADIX) + (index == 0 ? 'a' : 'b');
+    }
+
+    /**
+     * Gets the name of the net of a short
+     * @param cell0 the first cell of the short
+     * @param cell1 the second cell of the short
+     * @param id the ID of the short (ignored if shorts are not named by ID)
+     * @return the name of the net
+     */
+    public String getNetName(ShortCell cell0, ShortCell cell1, int id)
+    {
+        if (!compact)
+            return Short.getShortedNetName(cell0, cell1);
+        return getCompactNetName(id);
+    }
+
+    /**
+     * Reserves the ID of every compact short net among the nets, so that shorts added to a design that was reloaded
+     * from a checkpoint don't reuse the names of the shorts it already has
+     * @param nets the nets of a design
+     */
+    public void reserveUsedIds(Collection<Net> nets)
+    {
+        for (Net net : nets)
+        {
+            int id = getCompactId(net.getName());
+            if (id >= 0)
+                reserve(id);
+        }
+    }
+
+    /**
+     * @param netName the name of a net
+     * @return the ID of the compact short the net belongs to, or -1 if it is not the net of a compact short
+     */
+    public static int getCompactId(String netName)
+    {
+        if (netName.length() <= NET_PREFIX.length() || !netName.startsWith(NET_PREFIX))
+            return -1;
+        for (int i = NET_PREFIX.length(); i < netName.length(); i++)
+        {
+            if (Character.digit(netName.charAt(i), RADIX) < 0 || Character.isUpperCase(netName.charAt(i)))
+                return -1;
+        }
+        try
+        {
+            return Integer.parseInt(netName.substring(NET_PREFIX.length()), RADIX);
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * @param id the ID of a compact short
+     * @return the name of the net of the short
+     */
+    public static String getCompactNetName(int id)
+    {
+        return NET_PREFIX + Integer.toString(id, RADIX);
+    }
+
+    /**
+     * @param site the site a cell is placed on
+     * @param bel the BEL a cell is placed on
+     * @return the name a cell of a short has when it is not named by ID
+     */
+    public static String getVerboseCellName(Site site, BEL bel)
+    {
+        return "shortCell_" + site.getName() + "_" + bel.getName() + "_inst";
+    }
+
+    /**
+     * Gets the path of the name map that belongs next to a checkpoint, i.e. shorts.dcp becomes shorts.names
+     * @param dcpPath path of the checkpoint
+     * @return path of the name map
+     */
+    public static String getNameMapPath(String dcpPath)
+    {
+        if (dcpPath.endsWith(".dcp"))
+            dcpPath = dcpPath.substring(0, dcpPath.length() - ".dcp".length());
+        return dcpPath + NAME_MAP_EXTENSION;
+    }
+
+    /**
+     * Writes the long names of every compact short to a text file. Each line maps one compact cell or net name to the
+     * name it would have had without compact naming. Shorts that are not named by ID are skipped.
+     * @param shorts the shorts to write
+     * @param path path of the name map
+     */
+    public static void writeNameMap(Collection<Short> shorts, String path)
+    {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(path))))
+        {
+            for (Short s : shorts)
+            {
+                if (s.getId() < 0)
+                    continue;
+                ShortCell c0 = s.getFirstCell();
+                ShortCell c1 = s.getSecondCell();
+                out.println(c0.getCellName() + " " + getVerboseCellName(c0.getSite(), c0.getBel()));
+                out.println(c1.getCellName() + " " + getVerboseCellName(c1.getSite(), c1.getBel()));
+                out.println(s.getShortNet().getName() + " " + Short.getShortedNetName(c0, c1));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error! Could not write short name map " + path, e);
+        }
+    }
+
+    /**
+     * Reads a name map written by writeNameMap
+     * @param path path of the name map
+     * @return the long name of every compact cell and net name in the map
+     */
+    public static Map<String, String> readNameMap(String path)
+    {
+        Map<String, String> names = new HashMap<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(path)))
+        {
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                int split = line.indexOf(' ');
+                if (split < 0)
+                    continue;
+                names.put(line.substring(0, split), line.substring(split + 1));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error! Could not read short name map " + path, e);
+        }
+        return names;
+    }
+}
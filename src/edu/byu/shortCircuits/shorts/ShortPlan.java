@@ -0,0 +1,219 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.device.PIP;
+import com.xilinx.rapidwright.device.Site;
+import com.xilinx.rapidwright.device.Wire;
+import edu.byu.shortCircuits.rapidWrightTools.LogicBELID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable plan of shorts made from device data only (see ShortPlanner): which LUT-FF pairs to short and which
+ * candidate shorting PIPs each one is routed with. Nothing in the plan refers to a Design, so many plans can be made
+ * and compared before one of them is applied with ShortedDesign.applyPlan.
+ *
+ * The plan is stored as parallel arrays. The route of each pair is kept as the indices of its chosen candidates in one
+ * shared buffer, and the PIPs are only created when they are asked for.
+ */
+public final class ShortPlan
+{
+    private final String deviceName;
+    private final int numOfShorts;
+    private final int size;
+    private final Site[] sites;
+    private final LogicBELID[] ids;
+    private final ShortCandidateTable.Candidates[] candidates;
+    private final int[] chosen; // indices of the chosen candidates of every pair
+    private final int[] offsets; // offsets[i] is the index of the first chosen candidate of pair i. offsets[size] is the end
+    private final int routedCount;
+
+    private ShortPlan(Builder builder)
+    {
+        deviceName = builder.deviceName;
+        numOfShorts = builder.numOfShorts;
+        size = builder.size;
+        sites = Arrays.copyOf(builder.sites, size);
+        ids = Arrays.copyOf(builder.ids, size);
+        candidates = Arrays.copyOf(builder.candidates, size);
+        chosen = Arrays.copyOf(builder.chosen, builder.offsets[size]);
+        offsets = Arrays.copyOf(builder.offsets, size + 1);
+        routedCount = builder.routedCount;
+    }
+
+    /**
+     * Joins plans of the same device into one plan, in the order they are given
+     * @param plans the plans to join
+     * @return the joined plan
+     */
+    public static ShortPlan concat(List<ShortPlan> plans)
+    {
+        if (plans.isEmpty())
+            throw new RuntimeException("ERROR: There are no plans to join");
+
+        ShortPlan first = plans.get(0);
+        int size = 0;
+        for (ShortPlan plan : plans)
+        {
+            if (!plan.deviceName.equals(first.deviceName) || plan.numOfShorts != first.numOfShorts)
+                throw new RuntimeException("ERROR: Can't join a plan for " + plan.deviceName + " with "
+                        + plan.numOfShorts + " shorts per pair to a plan for " + first.deviceName + " with "
+                        + first.numOfShorts + " shorts per pair");
+            size += plan.size;
+        }
+
+        Builder builder = new Builder(first.deviceName, first.numOfShorts, size);
+        for (ShortPlan plan : plans)
+        {
+            for (int i = 0; i < plan.size; i++)
+                builder.add(plan.sites[i], plan.ids[i], plan.candidates[i], plan.chosen, plan.offsets[i],
+                        plan.offsets[i + 1]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the name of the device the plan was made for
+     */
+    public String getDeviceName() { return deviceName; }
+
+    /**
+     * @return how many shorts each LUT-FF pair was planned with
+     */
+    public int getNumOfShorts() { return numOfShorts; }
+
+    /**
+     * @return the number of LUT-FF pairs in the plan
+     */
+    public int size() { return size; }
+
+    /**
+     * @return the number of 6LUTs the plan needs, one for every LUT-FF pair
+     */
+    public int getLutCost() { return size; }
+
+    /**
+     * @return the number of LUT-FF pairs that could be routed
+     */
+    public int getRoutedCount() { return routedCount; }
+
+    /**
+     * @return the total number of shorting PIP pairs in the plan
+     */
+    public int getShortCount() { return offsets[size]; }
+
+    public Site getSite(int i) { return sites[i]; }
+
+    public LogicBELID getBELID(int i) { return ids[i]; }
+
+    /**
+     * @param i index of a LUT-FF pair
+     * @return true if the pair has a route
+     */
+    public boolean isRouted(int i) { return offsets[i + 1] > offsets[i]; }
+
+    /**
+     * Gets the route of a LUT-FF pair
+     * @param i index of the pair
+     * @return the PIPs that connect both BELs to the switchbox followed by the pairs of shorting PIPs, or null if the
+     *         pair could not be routed
+     */
+    public List<PIP> getRoute(int i)
+    {
+        if (!isRouted(i))
+            return null;
+        return Short.getRoute(candidates[i], sites[i].getTile(), chosen, offsets[i], offsets[i + 1]);
+    }
+
+    /**
+     * Gets the shared end wires that a LUT-FF pair is shorted on
+     * @param i index of the pair
+     * @return the end wires, one for every shorting PIP pair. Empty if the pair could not be routed.
+     */
+    public List<Wire> getEndWires(int i)
+    {
+        if (!isRouted(i))
+            return Collections.emptyList();
+        List<Wire> wires = new ArrayList<>(offsets[i + 1] - offsets[i]);
+        for (int j = offsets[i]; j < offsets[i + 1]; j++)
+            wires.add(new Wire(candidates[i].getSwitchboxTile(sites[i].getTile(), chosen[j]),
+                    candidates[i].getEndWireIndex(chosen[j])));
+        return wires;
+    }
+
+    @Override
+    public String toString()
+    {
+        return deviceName + ": " + size + " pairs (" + routedCount + " routed, " + getShortCount() + " shorts)";
+    }
+
+    /**
+     * Collects the pairs of a plan. Pairs are kept in the order they are added.
+     */
+    static class Builder
+    {
+        private final String deviceName;
+        private final int numOfShorts;
+        private Site[] sites;
+        private LogicBELID[] ids;
+        private ShortCandidateTable.Candidates[] candidates;
+        private int[] chosen;
+        private int[] offsets;
+        private int size;
+        private int routedCount;
+
+        Builder(String deviceName, int numOfShorts, int expectedPairs)
+        {
+            this.deviceName = deviceName;
+            this.numOfShorts = numOfShorts;
+            int capacity = Math.max(expectedPairs, 1);
+            sites = new Site[capacity];
+            ids = new LogicBELID[capacity];
+            candidates = new ShortCandidateTable.Candidates[capacity];
+            chosen = new int[capacity * numOfShorts];
+            offsets = new int[capacity + 1];
+        }
+
+        /**
+         * Adds a LUT-FF pair to the plan
+         * @param chosen the indices of the chosen candidates of the pair, or null if it could not be routed
+         */
+        void add(Site site, LogicBELID id, ShortCandidateTable.Candidates candidates, int[] chosen)
+        {
+            add(site, id, candidates, chosen, 0, chosen == null ? 0 : chosen.length);
+        }
+
+        private void add(Site site, LogicBELID id, ShortCandidateTable.Candidates pairCandidates, int[] pairChosen,
+                         int from, int to)
+        {
+            if (size == sites.length)
+            {
+                sites = Arrays.copyOf(sites, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                candidates = Arrays.copyOf(candidates, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            }
+            int end = offsets[size];
+            if (to > from)
+            {
+                if (end + to - from > chosen.length)
+                    chosen = Arrays.copyOf(chosen, Math.max(chosen.length * 2, end + to - from));
+                System.arraycopy(pairChosen, from, chosen, end, to - from);
+                routedCount++;
+            }
+
+            sites[size] = site;
+            ids[size] = id;
+            candidates[size] = pairCandidates;
+            size++;
+            offsets[size] = end + to - from;
+        }
+
+        ShortPlan build()
+        {
+            return new ShortPlan(this);
+        }
+    }
+}
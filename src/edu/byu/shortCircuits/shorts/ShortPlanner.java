@@ -0,0 +1,149 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.device.ClockRegion;
+import com.xilinx.rapidwright.device.Device;
+import com.xilinx.rapidwright.device.PIP;
+import com.xilinx.rapidwright.device.Site;
+import edu.byu.shortCircuits.metrics.ShortMetrics;
+import edu.byu.shortCircuits.metrics.ShortMetrics.Phase;
+import edu.byu.shortCircuits.rapidWrightTools.LogicBELID;
+import edu.byu.shortCircuits.rapidWrightTools.SiteRegion;
+import edu.byu.shortCircuits.rapidWrightTools.UsedWireSet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Plans shorts from device data only. The planner picks the LUT-FF pairs of each site and the shorting PIPs of each
+ * pair the same way ShortedDesign.createShortedRegion does, but only reads the used wires it is given and never
+ * creates cells or nets, so a plan costs no Design mutation. Every plan gets its own copy of the used wires, so plans
+ * made by the same planner don't affect each other.
+ *
+ * <pre>
+ *   ShortPlanner planner = new ShortPlanner(device, usedWires, 2);
+ *   ShortPlan plan = planner.plan(region);
+ *   if (plan.getLutCost() <= shortedDesign.getRemainingLuts())
+ *       shortedDesign.applyPlan(plan);
+ * </pre>
+ */
+@SuppressWarnings("try") // the phase timers are only opened to be closed at the end of the block
+public class ShortPlanner
+{
+    private final Device device;
+    private final DeviceFamily family;
+    private final UsedWireSet usedWires;
+    private final int numOfShorts;
+    private final ShortMetrics metrics;
+
+    /**
+     * Creates a planner
+     * @param device the device to plan for
+     * @param usedWires the wires that are already in use. Only read, and must not change while a plan is being made.
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     */
+    public ShortPlanner(Device device, UsedWireSet usedWires, int numOfShorts)
+    {
+        this(device, usedWires, numOfShorts, new ShortMetrics());
+    }
+
+    /**
+     * Creates a planner that reports the time it spends planning and the candidates it examines
+     * @param device the device to plan for
+     * @param usedWires the wires that are already in use. Only read, and must not change while a plan is being made.
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @param metrics the metrics to report to
+     */
+    public ShortPlanner(Device device, UsedWireSet usedWires, int numOfShorts, ShortMetrics metrics)
+    {
+        if (numOfShorts < 1)
+            throw new RuntimeException("ERROR: The number of shorts per pair (" + numOfShorts + ") must be at least 1");
+        this.device = device;
+        this.family = DeviceFamily.of(device);
+        this.usedWires = usedWires;
+        this.numOfShorts = numOfShorts;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Plans shorts on every logic site of a region
+     * @param region the sites to short
+     * @return the plan, with the sites in scanline order
+     */
+    public ShortPlan plan(SiteRegion region)
+    {
+        return plan(region.getSites(device));
+    }
+
+    /**
+     * Plans shorts on every LUT-FF pair of the sites
+     * @param sites logic sites of the device
+     * @return the plan, with the sites in the order they were given
+     */
+    public ShortPlan plan(List<Site> sites)
+    {
+        try (ShortMetrics.Timer t = metrics.time(Phase.PLANNING)) {
+            return planSites(sites);
+        }
+    }
+
+    /**
+     * Plans shorts on every logic site of a region, planning each clock region on its own thread. Clock regions are
+     * planned independently, so the routes of neighboring clock regions may share wires that are already used by the
+     * other. ShortedDesign.applyPlan routes those shorts again when the plan is applied.
+     * @param region the sites to short
+     * @param pool the pool to plan the clock regions on
+     * @return the plan, clock region by clock region in the order they are first seen in scanline order
+     */
+    public ShortPlan planParallel(SiteRegion region, ForkJoinPool pool)
+    {
+        try (ShortMetrics.Timer t = metrics.time(Phase.PLANNING)) {
+            Map<String, List<Site>> clockRegions = new LinkedHashMap<>();
+            for (Site site : region.getSites(device)) {
+                ClockRegion clockRegion = site.getTile().getClockRegion();
+                String key = clockRegion == null ? "" : clockRegion.getName();
+                clockRegions.computeIfAbsent(key, k -> new ArrayList<>()).add(site);
+            }
+            if (clockRegions.isEmpty())
+                return planSites(new ArrayList<>());
+
+            List<Callable<ShortPlan>> tasks = new ArrayList<>();
+            for (List<Site> sites : clockRegions.values())
+                tasks.add(() -> planSites(sites));
+
+            List<ShortPlan> plans = new ArrayList<>(tasks.size());
+            try {
+                for (Future<ShortPlan> future : pool.invokeAll(tasks))
+                    plans.add(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException("Error! Could not plan shorts in parallel", e);
+            }
+            return ShortPlan.concat(plans);
+        }
+    }
+
+    private ShortPlan planSites(List<Site> sites)
+    {
+        UsedWireSet plannedWires = new UsedWireSet(usedWires);
+        ShortPlan.Builder builder = new ShortPlan.Builder(device.getName(), numOfShorts,
+                sites.size() * family.getPairsPerSite());
+        for (Site site : sites) {
+            for (LogicBELID id : family.getBELIDs()) {
+                ShortCandidateTable.Candidates candidates = ShortCandidateTable.getCandidates(site,
+                        site.getBEL(family.getLUTName(id)), site, site.getBEL(family.getFFName(id)));
+                int[] chosen = Short.findCandidates(candidates, site.getTile(), plannedWires, numOfShorts, metrics);
+                if (chosen != null) {
+                    for (PIP pip : Short.getRoute(candidates, site.getTile(), chosen, 0, chosen.length))
+                        plannedWires.add(pip.getTile(), pip.getEndWireIndex());
+                }
+                builder.add(site, id, candidates, chosen);
+            }
+        }
+        return builder.build();
+    }
+}
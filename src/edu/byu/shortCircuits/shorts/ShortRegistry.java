@@ -0,0 +1,193 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.device.ClockRegion;
+import com.xilinx.rapidwright.device.Site;
+import com.xilinx.rapidwright.device.Tile;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The shorts of a ShortedDesign, kept in the order they were added and indexed by the tile, site and clock region
+ * they were placed in, so the shorts of an area can be found without scanning every short. The location of each short
+ * is recorded when it is added, so a short can still be removed from the indices after its cells have been unplaced.
+ *
+ * Short doesn't override equals, so the shorts and every bucket of the indices are insertion-ordered identity sets,
+ * and removing a short takes the same time however many shorts the registry holds.
+ */
+public class ShortRegistry
+{
+    private final Map<Short, Location> locations = new LinkedHashMap<>(); // every short, in the order they were added
+    private final Map<Tile, Set<Short>> byTile = new HashMap<>();
+    private final Map<Site, Set<Short>> bySite = new HashMap<>();
+    private final Map<String, Set<Short>> byClockRegion = new HashMap<>();
+    private List<Short> snapshot; // the shorts as a list, or null if shorts were added or removed since it was made
+
+    /**
+     * Adds a short to the registry. Shorts that are already in the registry are ignored.
+     * @param s a placed short
+     */
+    void add(Short s)
+    {
+        if (locations.containsKey(s))
+            return;
+
+        Tile tile = s.getTile();
+        Site site = s.getFirstCell().getSite();
+        ClockRegion clockRegion = tile.getClockRegion();
+        Location location = new Location(tile, site, clockRegion == null ? "" : getKey(clockRegion.getName()));
+
+        locations.put(s, location);
+        snapshot = null;
+        byTile.computeIfAbsent(tile, k -> new LinkedHashSet<>()).add(s);
+        if (site != null)
+            bySite.computeIfAbsent(site, k -> new LinkedHashSet<>()).add(s);
+        byClockRegion.computeIfAbsent(location.clockRegion, k -> new LinkedHashSet<>()).add(s);
+    }
+
+    /**
+     * Removes a short from the registry
+     * @param s the short to remove
+     * @return true if the short was in the registry
+     */
+    boolean remove(Short s)
+    {
+        Location location = locations.remove(s);
+        if (location == null)
+            return false;
+
+        snapshot = null;
+        removeFromBucket(byTile, location.tile, s);
+        if (location.site != null)
+            removeFromBucket(bySite, location.site, s);
+        removeFromBucket(byClockRegion, location.clockRegion, s);
+        return true;
+    }
+
+    /**
+     * Removes shorts from the registry
+     * @param toRemove the shorts to remove. Shorts that are not in the registry are ignored.
+     * @return the shorts that were removed
+     */
+    List<Short> removeAll(Collection<Short> toRemove)
+    {
+        List<Short> removed = new ArrayList<>();
+        for (Short s : toRemove)
+        {
+            if (remove(s))
+                removed.add(s);
+        }
+        return removed;
+    }
+
+    private static <K> void removeFromBucket(Map<K, Set<Short>> index, K key, Short s)
+    {
+        Set<Short> bucket = index.get(key);
+        if (bucket == null)
+            return;
+        bucket.remove(s);
+        if (bucket.isEmpty())
+            index.remove(key);
+    }
+
+    /**
+     * @return every short in the registry, in the order they were added. The list can't be modified and doesn't
+     *         change when shorts are added or removed later.
+     */
+    public List<Short> getShorts()
+    {
+        if (snapshot == null)
+            snapshot = Collections.unmodifiableList(new ArrayList<>(locations.keySet()));
+        return snapshot;
+    }
+
+    public int size() { return locations.size(); }
+
+    public boolean contains(Short s) { return locations.containsKey(s); }
+
+    /**
+     * @param tile a logic tile
+     * @return the shorts placed in the tile
+     */
+    public List<Short> getShortsInTile(Tile tile)
+    {
+        return copyOf(byTile.get(tile));
+    }
+
+    /**
+     * @param site a logic site
+     * @return the shorts placed in the site
+     */
+    public List<Short> getShortsInSite(Site site)
+    {
+        return copyOf(bySite.get(site));
+    }
+
+    /**
+     * @param clockRegion a clock region
+     * @return the shorts placed in the clock region
+     */
+    public List<Short> getShortsInClockRegion(ClockRegion clockRegion)
+    {
+        return getShortsInClockRegion(clockRegion.getName());
+    }
+
+    /**
+     * @param name the name of a clock region, with or without the CLOCKREGION_ prefix (e.g. X0Y1)
+     * @return the shorts placed in the clock region
+     */
+    public List<Short> getShortsInClockRegion(String name)
+    {
+        return copyOf(byClockRegion.get(getKey(name)));
+    }
+
+    /**
+     * Gets the shorts placed in any of the sites
+     * @param sites logic sites
+     * @return the shorts, site by site in the order the sites were given
+     */
+    public List<Short> getShortsInSites(Collection<Site> sites)
+    {
+        List<Short> found = new ArrayList<>();
+        for (Site site : sites)
+        {
+            Set<Short> bucket = bySite.get(site);
+            if (bucket != null)
+                found.addAll(bucket);
+        }
+        return found;
+    }
+
+    private static List<Short> copyOf(Set<Short> bucket)
+    {
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+
+    // clock regions are named X#Y# or CLOCKREGION_X#Y# depending on the version of the device files
+    private static String getKey(String clockRegionName)
+    {
+        return clockRegionName.startsWith("CLOCKREGION_") ?
+                clockRegionName.substring("CLOCKREGION_".length()) : clockRegionName;
+    }
+
+    private static class Location
+    {
+        private final Tile tile;
+        private final Site site;
+        private final String clockRegion;
+
+        private Location(Tile tile, Site site, String clockRegion)
+        {
+            this.tile = tile;
+            this.site = site;
+            this.clockRegion = clockRegion;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.design.Net;
+import com.xilinx.rapidwright.device.PIP;
+import edu.byu.shortCircuits.rapidWrightTools.UsedWireSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the routes of many shorts (found with Short.findRoute) and commits them to their nets in a single pass.
+ * Every PIP of the batch is kept in one buffer, and each net gets its whole route at once and is locked right away.
+ * The used wires are updated from the buffer, so the nets don't have to be scanned again after they are routed.
+ */
+public class ShortRouteBatch
+{
+    private Short[] shorts;
+    private int[] offsets; // offsets[i] is the index of the first PIP of shorts[i] in pips. offsets[size] is the end
+    private final List<PIP> pips;
+    private int size;
+
+    /**
+     * Creates an empty batch
+     * @param expectedShorts how many shorts the batch is expected to hold
+     */
+    public ShortRouteBatch(int expectedShorts)
+    {
+        int capacity = Math.max(expectedShorts, 1);
+        shorts = new Short[capacity];
+        offsets = new int[capacity + 1];
+        pips = new ArrayList<>(capacity * 6); // two switchbox PIPs and two shorts of two PIPs each is typical
+    }
+
+    /**
+     * Adds the route of a short to the batch. Shorts are committed in the order they were added.
+     * @param s the short
+     * @param route the route found by Short.findRoute
+     */
+    public void add(Short s, List<PIP> route)
+    {
+        if (size == shorts.length)
+        {
+            shorts = Arrays.copyOf(shorts, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2 + 1);
+        }
+        shorts[size] = s;
+        pips.addAll(route);
+        size++;
+        offsets[size] = pips.size();
+    }
+
+    /**
+     * @return the number of shorts in the batch
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds the route of every short in the batch to its net, locks the routing of the nets and adds the end wires of
+     * the routes to the used wires.
+     * @param usedWires the used wires to update. May be null.
+     * @return the routed nets, in the order the shorts were added
+     */
+    public List<Net> commit(UsedWireSet usedWires)
+    {
+        List<Net> nets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            Net net = shorts[i].getShortNet();
+            List<PIP> route = pips.subList(offsets[i], offsets[i + 1]);
+            if (net.getPIPs().isEmpty())
+            {
+                net.setPIPs(new ArrayList<>(route));
+            }
+            else
+            {
+                List<PIP> netPips = new ArrayList<>(net.getPIPs().size() + route.size());
+                netPips.addAll(net.getPIPs());
+                netPips.addAll(route);
+                net.setPIPs(netPips);
+            }
+            net.lockRouting();
+
+            if (usedWires != null)
+            {
+                for (PIP pip : route)
+                    usedWires.add(pip.getTile(), pip.getEndWireIndex());
+            }
+            nets.add(net);
+        }
+        return nets;
+    }
+
+    /**
+     * Removes every route from the batch
+     */
+    public void clear()
+    {
+        Arrays.fill(shorts, 0, size, null);
+        pips.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,87 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.device.PIP;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of routing one short: whether it could be routed, how many shorting PIP pairs it got and the PIPs of its
+ * route.
+ */
+public class ShortRouteResult
+{
+    public enum Status
+    {
+        /** the short got every requested shorting PIP pair */
+        ROUTED,
+        /** the short got fewer shorting PIP pairs than requested, but at least the required minimum */
+        PARTIAL,
+        /** the short could not get the required minimum because its end wires are used by other shorts */
+        FAILED,
+        /** the cells of the short can't reach the switchbox, so it can never be routed */
+        UNROUTABLE
+    }
+
+    private final Short s;
+    private final Status status;
+    private final int requested;
+    private final int shortCount;
+    private final List<PIP> route;
+
+    ShortRouteResult(Short s, Status status, int requested, int shortCount, List<PIP> route)
+    {
+        this.s = s;
+        this.status = status;
+        this.requested = requested;
+        this.shortCount = shortCount;
+        this.route = route;
+    }
+
+    public Short getShort() { return s; }
+
+    public Status getStatus() { return status; }
+
+    /**
+     * @return true if the short has a route that can be committed
+     */
+    public boolean isRouted() { return status == Status.ROUTED || status == Status.PARTIAL; }
+
+    /**
+     * @return the number of shorting PIP pairs that were requested
+     */
+    public int getRequested() { return requested; }
+
+    /**
+     * @return the number of shorting PIP pairs in the route
+     */
+    public int getShortCount() { return shortCount; }
+
+    /**
+     * @return the PIPs that connect both cells to the switchbox followed by the pairs of shorting PIPs. Empty if the
+     *         short was not routed.
+     */
+    public List<PIP> getRoute()
+    {
+        return route == null ? Collections.<PIP>emptyList() : Collections.unmodifiableList(route);
+    }
+
+    /**
+     * @param results the results of routing shorts
+     * @return the total number of shorting PIP pairs made
+     */
+    public static int countShorts(Collection<ShortRouteResult> results)
+    {
+        int count = 0;
+        for (ShortRouteResult result : results)
+            count += result.shortCount;
+        return count;
+    }
+
+    @Override
+    public String toString()
+    {
+        return s.getShortNet().getName() + ": " + status + " (" + shortCount + "/" + requested + ")";
+    }
+}
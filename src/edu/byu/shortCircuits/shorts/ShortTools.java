@@ -5,6 +5,7 @@ import com.xilinx.rapidwright.design.Net;
 import com.xilinx.rapidwright.device.*;
 import edu.byu.shortCircuits.rapidWrightTools.RapidWrightTools;
 import edu.byu.shortCircuits.rapidWrightTools.BELID;
+import edu.byu.shortCircuits.rapidWrightTools.LogicBELID;
 
 
 import java.util.ArrayList;
@@ -47,58 +48,24 @@ public class ShortTools
      */
     public static ArrayList<String> findShorts(ShortCell bel0, ShortCell bel1, boolean justNodes)
     {
-        //These are the wires that connect the smaller switchbox to the site pins of the two shortBels
-        Wire wire0 = bel0.getTileWire();
-        Wire wire1 = bel1.getTileWire();
-
-        //This will contain the two pips that connect need to be turned on in order to connect the two BELs to the
-        //larger interconnect tile (switchbox)
-        ArrayList<PIP> pips = new ArrayList<>();
-
-        //this gets all of the pips connected to wire0
-        for (PIP pip : wire0.getForwardPIPs())
-        {
-            //this if statement gets the PIP that will eventually connect us to the larger switchbox
-            if(pip.getPIPType() == PIPType.DIRECTIONAL_NOT_BUFFERED21)
-            {
-                pips.add(pip);
-                break;
-            }
-        }
-
-        //this gets all of the pips connected to wire1
-        for (PIP pip : wire1.getForwardPIPs())
-        {
-            //this if statement gets the PIP that will eventually connect us to the larger switchbox
-            if(pip.getPIPType() == PIPType.DIRECTIONAL_NOT_BUFFERED21)
-            {
-                pips.add(pip);
-                break;
-            }
-        }
+        //the candidate shorts are looked up from the table of shorts that exist for this type of tile
+        ShortCandidateTable.Candidates candidates =
+                ShortCandidateTable.getCandidates(bel0.getSite(), bel0.getBel(), bel1.getSite(), bel1.getBel());
+        Tile tile = bel0.getTileWire().getTile();
 
         //the list that will hold all possible shorts found
         ArrayList<String> potentialShorts = new ArrayList<>();
 
-        //finds all of the pips in the larger switch box that can be connected to BEL0
-        for (PIP pip0 : pips.get(0).getEndWire().getNode().getAllDownhillPIPs())
+        for (int i = 0; i < candidates.size(); i++)
         {
-            //finds all of the pips in the larger switch box that can be connected to BEL0
-            for (PIP pip1 : pips.get(1).getEndWire().getNode().getAllDownhillPIPs())
+            if(justNodes == true) //only adds the name of the end node if the justNodes parameter is true
             {
-                // adds the pips to the net if the two end nodes of the two pips are the same as each other
-                if (pip0.getEndWire().equals(pip1.getEndWire()))
-                {
-                    if(justNodes == true) //only adds the name of the end node if the justNodes parameter is true
-                    {
-                        potentialShorts.add(pip0.getEndWireName());
-                    }
-                    else //otherwise we will add the entire pips to the list
-                    {
-                        potentialShorts.add(pip0.toString());
-                        potentialShorts.add(pip1.toString());
-                    }
-                }
+                potentialShorts.add(candidates.getSwitchboxTile(tile, i).getWireName(candidates.getEndWireIndex(i)));
+            }
+            else //otherwise we will add the entire pips to the list
+            {
+                potentialShorts.add(candidates.getShortPIP0(tile, i).toString());
+                potentialShorts.add(candidates.getShortPIP1(tile, i).toString());
             }
         }
 
@@ -160,4 +127,17 @@ public class ShortTools
         //creates bel objects based on the bel strings and passes it to the second findShort method
         return findShorts(d, site0, site1, site0.getBEL(bel0), site1.getBEL(bel1), justNodes);
     }
+
+    /**
+     * Finds all of the nodes that can be used to short the LUT and FF of a BELID together. Unlike the other findShorts
+     * methods, this does not create or place any cells, since the nodes are looked up in the device's
+     * ShortabilityIndex.
+     * @param site The site that contains the LUT and FF
+     * @param id The BELID of the LUT and FF
+     * @return A list of the names of all of the nodes that can be used to create a short between the two BELs.
+     */
+    public static List<String> findShorts(Site site, LogicBELID id)
+    {
+        return ShortabilityIndex.get(site.getTile().getDevice()).getShortableNodes(site, id);
+    }
 }
@@ -0,0 +1,407 @@
+package edu.byu.shortCircuits.shorts;
+
+import com.xilinx.rapidwright.device.*;
+import edu.byu.shortCircuits.rapidWrightTools.LogicBELID;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of every short that can be made on a device: for each logic site and BELID, the end wires that can short
+ * the LUT and FF of that BELID together. The index is built from device data only (no cells are placed) and is
+ * stored in an on-disk cache keyed by the device name, so it only has to be built once per part.
+ *
+ * The end wires are found with ShortCandidateTable, which tells tiles apart by the layout of their switchbox nodes and
+ * not only by their tile type (tiles on the edges of the device have truncated nodes and other candidates). Every
+ * distinct set of candidates is stored once, relative to the logic tile, and each logic tile records which set each of
+ * its LUT-FF pairs uses.
+ *
+ * The cache is written to the directory given by the shortCircuits.cacheDir system property, or to
+ * ~/.short_circuit_aging/cache by default.
+ */
+public class ShortabilityIndex
+{
+    private static final int MAGIC = 0x53434958; // "SCIX"
+    private static final int VERSION = 2;
+    private static final Map<String, ShortabilityIndex> indices = new ConcurrentHashMap<>();
+
+    private final Device device;
+    private final DeviceFamily family;
+    private final List<Entry> entries = new ArrayList<>(); // every distinct set of end wires
+    private final Map<Tile, int[]> tileEntries = new HashMap<>(); // entry of each [site index * pairs + BELID]
+    private final List<Tile> logicTiles = new ArrayList<>();
+
+    /**
+     * Gets the shortability index of a device. The index is loaded from the on-disk cache if possible, otherwise it is
+     * built and written to the cache.
+     * @param device the device
+     * @return the shortability index
+     */
+    public static ShortabilityIndex get(Device device)
+    {
+        return indices.computeIfAbsent(device.getName(), k -> {
+            ShortabilityIndex index = new ShortabilityIndex(device);
+            File cacheFile = getCacheFile(device);
+            if (!index.load(cacheFile))
+            {
+                index.build();
+                index.save(cacheFile);
+            }
+            return index;
+        });
+    }
+
+    /**
+     * @param device the device
+     * @return the file the index of the device is cached in
+     */
+    public static File getCacheFile(Device device)
+    {
+        String defaultDir = System.getProperty("user.home") + File.separator + ".short_circuit_aging"
+                + File.separator + "cache";
+        String dir = System.getProperty("shortCircuits.cacheDir", defaultDir);
+        return new File(dir, device.getName() + ".shortability.v" + VERSION);
+    }
+
+    private ShortabilityIndex(Device device)
+    {
+        this.device = device;
+        this.family = DeviceFamily.of(device);
+
+        Set<Tile> tiles = new LinkedHashSet<>();
+        for (SiteTypeEnum type : new SiteTypeEnum[]{SiteTypeEnum.SLICEL, SiteTypeEnum.SLICEM})
+        {
+            Site[] sites = device.getAllSitesOfType(type);
+            if (sites == null)
+                continue;
+            for (Site site : sites)
+                tiles.add(site.getTile());
+        }
+        logicTiles.addAll(tiles);
+    }
+
+    private void build()
+    {
+        // tiles with the same switchbox node layout share one Candidates object, and so one entry
+        Map<ShortCandidateTable.Candidates, Integer> entryIds = new IdentityHashMap<>();
+        int pairs = family.getPairsPerSite();
+        for (Tile tile : logicTiles)
+        {
+            Site[] sites = tile.getSites();
+            int[] ids = new int[sites.length * pairs];
+            for (Site site : sites)
+            {
+                for (LogicBELID id : family.getBELIDs())
+                {
+                    ShortCandidateTable.Candidates candidates = getCandidates(site, id);
+                    Integer entryId = entryIds.get(candidates);
+                    if (entryId == null)
+                    {
+                        entryId = entries.size();
+                        entryIds.put(candidates, entryId);
+                        entries.add(new Entry(tile, candidates));
+                    }
+                    ids[site.getSiteIndexInTile() * pairs + id.toInt()] = entryId;
+                }
+            }
+            tileEntries.put(tile, ids);
+        }
+    }
+
+    private ShortCandidateTable.Candidates getCandidates(Site site, LogicBELID id)
+    {
+        return ShortCandidateTable.getCandidates(site, site.getBEL(family.getLUTName(id)), site,
+                site.getBEL(family.getFFName(id)));
+    }
+
+    /**
+     * Loads the index from the cache file. Every cached entry is checked against the first tile that uses it, so a
+     * stale cache (e.g. from a different version of the device files) is ignored.
+     * @return true if the index was loaded
+     */
+    private boolean load(File cacheFile)
+    {
+        if (!cacheFile.isFile())
+            return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(device.getName())
+                    || in.readInt() != family.getPairsPerSite())
+                return false;
+
+            int entryCount = in.readInt();
+            for (int e = 0; e < entryCount; e++)
+                entries.add(Entry.read(in));
+
+            if (in.readInt() != logicTiles.size())
+                return clearEntries();
+            boolean[] checked = new boolean[entryCount];
+            for (Tile tile : logicTiles)
+            {
+                if (!in.readUTF().equals(tile.getName()))
+                    return clearEntries();
+                int[] ids = new int[in.readInt()];
+                if (ids.length != tile.getSites().length * family.getPairsPerSite())
+                    return clearEntries();
+                for (int i = 0; i < ids.length; i++)
+                {
+                    ids[i] = in.readInt();
+                    if (ids[i] < 0 || ids[i] >= entryCount)
+                        return clearEntries();
+                    if (!checked[ids[i]])
+                    {
+                        if (!entries.get(ids[i]).matches(tile))
+                            return clearEntries();
+                        checked[ids[i]] = true;
+                    }
+                }
+                tileEntries.put(tile, ids);
+            }
+            return true;
+        }
+        catch (IOException | IllegalArgumentException | NegativeArraySizeException e)
+        {
+            return clearEntries();
+        }
+    }
+
+    private boolean clearEntries()
+    {
+        entries.clear();
+        tileEntries.clear();
+        return false;
+    }
+
+    /**
+     * Writes the index to a temporary file next to the cache file and then moves it into place, so a run that is
+     * killed while writing never leaves a partial cache behind.
+     */
+    private void save(File cacheFile)
+    {
+        File dir = cacheFile.getAbsoluteFile().getParentFile();
+        File tempFile = null;
+        try
+        {
+            dir.mkdirs();
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+            try (DataOutputStream out =
+                         new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(device.getName());
+                out.writeInt(family.getPairsPerSite());
+                out.writeInt(entries.size());
+                for (Entry entry : entries)
+                    entry.write(out);
+                out.writeInt(logicTiles.size());
+                for (Tile tile : logicTiles)
+                {
+                    int[] ids = tileEntries.get(tile);
+                    out.writeUTF(tile.getName());
+                    out.writeInt(ids.length);
+                    for (int id : ids)
+                        out.writeInt(id);
+                }
+            }
+
+            try
+            {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e)
+        {
+            // the cache is only an optimization, so the index can still be used if it could not be written
+            if (tempFile != null)
+                tempFile.delete();
+        }
+    }
+
+    /**
+     * Gets the end wires that can short the LUT and FF of a BELID together.
+     * @param site the logic site
+     * @param id the BELID of the LUT and FF
+     * @return the shortable end wires, in the order they are used by Short.routeShort
+     */
+    public List<Wire> getShortableWires(Site site, LogicBELID id)
+    {
+        Tile tile = site.getTile();
+        Entry entry = getEntry(site, id);
+        List<Wire> wires = new ArrayList<>();
+        if (entry != null)
+        {
+            for (int i = 0; i < entry.size(); i++)
+                wires.add(new Wire(entry.getSwitchboxTile(tile, i), entry.endWires[i]));
+            return wires;
+        }
+
+        // the site isn't a logic site of the index, so its candidates are looked up directly
+        ShortCandidateTable.Candidates candidates = getCandidates(site, id);
+        for (int i = 0; i < candidates.size(); i++)
+            wires.add(new Wire(candidates.getSwitchboxTile(tile, i), candidates.getEndWireIndex(i)));
+        return wires;
+    }
+
+    /**
+     * Gets the names of the end wires that can short the LUT and FF of a BELID together. These are the nodes used by
+     * Short.routeShort(Design, String).
+     * @param site the logic site
+     * @param id the BELID of the LUT and FF
+     * @return the names of the shortable end wires
+     */
+    public List<String> getShortableNodes(Site site, LogicBELID id)
+    {
+        List<String> nodes = new ArrayList<>();
+        for (Wire wire : getShortableWires(site, id))
+            nodes.add(wire.getWireName());
+        return nodes;
+    }
+
+    /**
+     * Gets how many shorts can be made between the LUT and FF of a BELID.
+     * @param site the logic site
+     * @param id the BELID of the LUT and FF
+     * @return the number of shortable end wires
+     */
+    public int getShortCount(Site site, LogicBELID id)
+    {
+        Entry entry = getEntry(site, id);
+        if (entry != null)
+            return entry.size();
+        return getShortableWires(site, id).size();
+    }
+
+    /**
+     * Visits every shortable (site, BELID, end wire) tuple of the device.
+     * @param visitor receives each tuple
+     */
+    public void forEachShortable(Visitor visitor)
+    {
+        for (Tile tile : logicTiles)
+        {
+            for (Site site : tile.getSites())
+            {
+                for (LogicBELID id : family.getBELIDs())
+                {
+                    for (Wire wire : getShortableWires(site, id))
+                        visitor.visit(site, id, wire);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return every tile of the device that contains logic sites
+     */
+    public List<Tile> getLogicTiles()
+    {
+        return Collections.unmodifiableList(logicTiles);
+    }
+
+    private Entry getEntry(Site site, LogicBELID id)
+    {
+        int[] ids = tileEntries.get(site.getTile());
+        int i = site.getSiteIndexInTile() * family.getPairsPerSite() + id.toInt();
+        if (ids == null || i >= ids.length)
+            return null;
+        return entries.get(ids[i]);
+    }
+
+    /**
+     * Receives the shortable tuples of a device
+     */
+    public interface Visitor
+    {
+        void visit(Site site, LogicBELID id, Wire endWire);
+    }
+
+    /**
+     * The shortable end wires of a LUT-FF pair, relative to the logic tile. Shared by every pair whose switchbox nodes
+     * are laid out the same way.
+     */
+    private static class Entry
+    {
+        private final int[] rowOffsets;
+        private final int[] columnOffsets;
+        private final int[] endWires;
+        private final String[] endWireNames; // used to check the cache against the device
+
+        private Entry(int size)
+        {
+            rowOffsets = new int[size];
+            columnOffsets = new int[size];
+            endWires = new int[size];
+            endWireNames = new String[size];
+        }
+
+        private Entry(Tile tile, ShortCandidateTable.Candidates candidates)
+        {
+            this(candidates.size());
+            for (int i = 0; i < size(); i++)
+            {
+                Tile switchbox = candidates.getSwitchboxTile(tile, i);
+                rowOffsets[i] = switchbox.getRow() - tile.getRow();
+                columnOffsets[i] = switchbox.getColumn() - tile.getColumn();
+                endWires[i] = candidates.getEndWireIndex(i);
+                endWireNames[i] = switchbox.getWireName(endWires[i]);
+            }
+        }
+
+        private int size() { return endWires.length; }
+
+        private Tile getSwitchboxTile(Tile tile, int i)
+        {
+            return tile.getDevice().getTile(tile.getRow() + rowOffsets[i], tile.getColumn() + columnOffsets[i]);
+        }
+
+        /**
+         * Checks the entry against a tile that uses it, so a cache made from other device files is not used
+         */
+        private boolean matches(Tile tile)
+        {
+            for (int i = 0; i < size(); i++)
+            {
+                Tile switchbox = getSwitchboxTile(tile, i);
+                if (switchbox == null || !switchbox.getWireName(endWires[i]).equals(endWireNames[i]))
+                    return false;
+            }
+            return true;
+        }
+
+        private void write(DataOutputStream out) throws IOException
+        {
+            out.writeInt(size());
+            for (int i = 0; i < size(); i++)
+            {
+                out.writeShort(rowOffsets[i]);
+                out.writeShort(columnOffsets[i]);
+                out.writeInt(endWires[i]);
+                out.writeUTF(endWireNames[i]);
+            }
+        }
+
+        private static Entry read(DataInputStream in) throws IOException
+        {
+            Entry entry = new Entry(in.readInt());
+            for (int i = 0; i < entry.size(); i++)
+            {
+                entry.rowOffsets[i] = in.readShort();
+                entry.columnOffsets[i] = in.readShort();
+                entry.endWires[i] = in.readInt();
+                entry.endWireNames[i] = in.readUTF();
+            }
+            return entry;
+        }
+    }
+}
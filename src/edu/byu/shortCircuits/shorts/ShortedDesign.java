@@ -4,27 +4,45 @@ import com.xilinx.rapidwright.design.Cell;
 import com.xilinx.rapidwright.design.Design;
 import com.xilinx.rapidwright.design.Net;
 import com.xilinx.rapidwright.device.*;
-import edu.byu.shortCircuits.rapidWrightTools.BELID;
+import edu.byu.shortCircuits.metrics.ShortMetrics;
+import edu.byu.shortCircuits.metrics.ShortMetrics.Counter;
+import edu.byu.shortCircuits.metrics.ShortMetrics.Phase;
+import edu.byu.shortCircuits.rapidWrightTools.LogicBELID;
 import edu.byu.shortCircuits.rapidWrightTools.RapidWrightTools;
+import edu.byu.shortCircuits.rapidWrightTools.SiteGrid;
+import edu.byu.shortCircuits.rapidWrightTools.SiteRegion;
+import edu.byu.shortCircuits.rapidWrightTools.UsedWireSet;
 
 import java.util.*;
-
-import static edu.byu.shortCircuits.rapidWrightTools.RapidWrightTools.countLut6;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /*
  * This class contains tools to find and create shorts. It also contains a list of all shorts created through the
  * createShort method of this class
  */
+@SuppressWarnings("try") // the phase timers are only opened to be closed at the end of the block
 public class ShortedDesign
 {
-    private final static int MAX_35T_LUTS = 20800;
     private Design d;
-    private int maxLuts;
-    private Set<Wire> usedWires = new HashSet<>();
+    private ResourceLedger ledger; // keeps count of the LUTs used against the LUTs available on the device
+    private SiteGrid siteGrid; // logic sites of the device indexed by their coordinates
+    private DeviceFamily family; // how the logic sites of the device are laid out and connected to the switchboxes
+    private UsedWireSet usedWires = new UsedWireSet();
 //    private static ArrayList<Short> shorts = new ArrayList<>(); // A List containing all shorts made through one of the
 //                                                                // createShort methods.
 
-    private List<Short> shorts = new ArrayList<>();
+    private final ShortRegistry registry = new ShortRegistry(); // shorts indexed by tile, site and clock region
+    private boolean retainShorts = true;
+    private boolean droppedShorts = false; // true once a short has been placed without being retained
+    private final ShortNaming compactNaming = new ShortNaming(); // IDs of the shorts named while compact naming is on
+    private ShortNaming naming = ShortNaming.VERBOSE;
+    private boolean compactNamingSeeded = false; // true once the IDs of the design's compact shorts are reserved
+    private boolean sharedPrototypes = false;
+    private final ShortMetrics metrics = new ShortMetrics(() -> usedWires.size());
 
     /**
      * creates a new shorted design and adds the finds the used wires from the design.
@@ -33,37 +51,27 @@ public class ShortedDesign
     public ShortedDesign(Design d) {
         this.d = d;
 
-        usedWires = new HashSet<>();
-        for (Net net : d.getNets())
-        {
-            for(PIP pip : net.getPIPs())
-            {
-                usedWires.add(pip.getEndWire());
-            }
-        }
+        usedWires = new UsedWireSet();
+        updateUsedWires(d);
 
-        if (d.getDevice().toString().contains("xc7a35t"))
-            maxLuts = MAX_35T_LUTS;
-        else
-            maxLuts = Integer.MAX_VALUE;
+        try (ShortMetrics.Timer t = metrics.time(Phase.RESOURCE_COUNT)) {
+            ledger = new ResourceLedger(d);
+        }
+        family = DeviceFamily.of(d.getDevice());
+        siteGrid = SiteGrid.get(d.getDevice());
     }
 
     public ShortedDesign(Design d, Collection<Short> shorts) {
         this.d = d;
 
-        usedWires = new HashSet<>();
-        for (Net net : d.getNets())
-        {
-            for(PIP pip : net.getPIPs())
-            {
-                usedWires.add(pip.getEndWire());
-            }
-        }
+        usedWires = new UsedWireSet();
+        updateUsedWires(d);
 
-        if (d.getDevice().toString().contains("xc7a35t"))
-            maxLuts = MAX_35T_LUTS;
-        else
-            maxLuts = Integer.MAX_VALUE;
+        try (ShortMetrics.Timer t = metrics.time(Phase.RESOURCE_COUNT)) {
+            ledger = new ResourceLedger(d);
+        }
+        family = DeviceFamily.of(d.getDevice());
+        siteGrid = SiteGrid.get(d.getDevice());
 
         addShorts(shorts);
     }
@@ -78,31 +86,152 @@ public class ShortedDesign
             ShortCell c0 = s.getFirstCell();
             ShortCell c1 = s.getSecondCell();
             Net net = s.getShortNet();
-            this.shorts.add(new Short(d, c0, c1, net));
+            Short copy = new Short(d, c0, c1, net);
+            copy.setId(s.getId());
+            if (s.getId() >= 0)
+                compactNaming.reserve(s.getId());
+            registry.add(copy);
+        }
+    }
+
+    /**
+     * Turns compact naming on or off for the shorts placed from now on. With compact naming the cells and nets of
+     * each short are named by a short ID instead of their sites and BELs (see ShortNaming), which makes large designs
+     * and their checkpoints much smaller. Use writeNameMap to keep the long names next to the checkpoint. The first
+     * time compact naming is turned on, the nets of the design are scanned for compact shorts it already has (e.g.
+     * because it was reloaded from a checkpoint) so that new shorts never reuse their IDs.
+     * @param compact true to name new shorts by ID
+     */
+    public void setCompactNaming(boolean compact) {
+        if (compact && !compactNamingSeeded) {
+            compactNaming.reserveUsedIds(d.getNets());
+            compactNamingSeeded = true;
         }
+        naming = compact ? compactNaming : ShortNaming.VERBOSE;
+    }
+
+    /**
+     * Turns compact naming on, naming the shorts placed from now on with IDs starting at firstId (or after the
+     * highest ID already used by this design, if that is higher). Unlike setCompactNaming(true), the nets of the
+     * design are not scanned, so the caller is responsible for firstId being past the compact shorts of the design.
+     * @param firstId the ID of the next short
+     */
+    public void setCompactNaming(int firstId) {
+        compactNaming.reserve(firstId - 1);
+        compactNamingSeeded = true;
+        naming = compactNaming;
+    }
+
+    public boolean isCompactNaming() { return naming.isCompact(); }
+
+    /**
+     * Turns shared netlist prototypes on or off for the shorts placed from now on. With shared prototypes the INIT
+     * property of a LUT or FF is only written when it differs from the Unisim default, and every cell with the same
+     * configuration shares one property value, which makes the netlists of designs with many shorts much smaller.
+     * Only this design is affected.
+     * @param shared true to use shared prototypes
+     */
+    public void setSharedPrototypes(boolean shared) { sharedPrototypes = shared; }
+
+    public boolean isUsingSharedPrototypes() { return sharedPrototypes; }
+
+    /**
+     * Writes the long names of the compact shorts of this design to a sidecar file (see
+     * ShortNaming.getNameMapPath). Fails if any short was not retained (see setRetainShorts).
+     * @param path path of the name map
+     */
+    public void writeNameMap(String path) {
+        checkAllShortsRetained("write the name map");
+        ShortNaming.writeNameMap(registry.getShorts(), path);
+    }
+
+    /**
+     * Writes a manifest of the shorts in this design. Write it next to the checkpoint of the design (see
+     * ShortManifest.getManifestPath) so that the shorts can be reattached with loadShortManifest once the checkpoint
+     * is reloaded. Fails if any short was not retained (see setRetainShorts).
+     * @param path path of the manifest file
+     */
+    public void writeShortManifest(String path) {
+        checkAllShortsRetained("write the short manifest");
+        ShortManifest.write(registry.getShorts(), path);
     }
 
     /**
-     * Updates set of wires this design currently uses.
+     * Reattaches the shorts described by a manifest to this design. Much faster than addShorts when reloading a large
+     * shorted design, since no cells or nets are looked up by name.
+     * @param path path of the manifest file
+     * @return the shorts that were reattached
+     */
+    public List<Short> loadShortManifest(String path) {
+        List<Wire> endWires = new ArrayList<>();
+        List<Short> loaded = ShortManifest.read(d, path, endWires);
+        for (Short s : loaded) {
+            if (s.getId() >= 0)
+                compactNaming.reserve(s.getId());
+            registerShort(s);
+        }
+        updateUsedWires(endWires);
+        return loaded;
+    }
+
+    /**
+     * Adds the wires of every net of the design to the used wires. Wires that are already recorded (including those of
+     * merged designs, manifests and single nets) are kept. The wires of shorts that are routed, deleted or loaded
+     * through this class and of nets rerouted with rerouteNet are already recorded as they change, so this full scan is
+     * only needed after the design has been routed some other way.
      */
     public void updateUsedWires() {
         updateUsedWires(this.d);
     }
 
     /**
-     * Updates wires from a separate design
+     * Adds the wires used by a separate design (e.g. one whose nets will be merged into this design). Only the nets of
+     * the other design are scanned, and none of them are kept.
      * @param otherDesign separate design to update wires from.
      */
     public void updateUsedWires(Design otherDesign) {
-        for (Net net : d.getNets())
-        {
-            for(PIP pip : net.getPIPs())
+        try (ShortMetrics.Timer t = metrics.time(Phase.USED_WIRE_SCAN)) {
+            for (Net net : otherDesign.getNets())
             {
-                usedWires.add(pip.getEndWire());
+                addUsedWires(net.getPIPs());
             }
         }
     }
 
+    /**
+     * Adds the wires of every PIP of a single net, e.g. a net that was routed outside of this class. Use rerouteNet
+     * to change the route of a net that already uses wires, so that the wires it no longer uses are released.
+     * @param net the net to update wires from.
+     */
+    public void updateUsedWires(Net net) {
+        addUsedWires(net.getPIPs());
+    }
+
+    /**
+     * Replaces the route of a net, releasing the wires of its old PIPs and adding the wires of its new ones.
+     * @param net the net to reroute
+     * @param pips the new route of the net
+     */
+    public void rerouteNet(Net net, List<PIP> pips) {
+        releaseUsedWires(net.getPIPs());
+        net.setPIPs(new ArrayList<>(pips));
+        addUsedWires(pips);
+    }
+
+    private void addUsedWires(List<PIP> pips) {
+        for (PIP pip : pips)
+        {
+            usedWires.add(pip.getTile(), pip.getEndWireIndex());
+        }
+    }
+
+    private void releaseUsedWires(List<PIP> pips) {
+        for (PIP pip : pips)
+        {
+            usedWires.remove(pip.getTile(), pip.getEndWireIndex());
+        }
+    }
+
     /**
      * updates the wires used in the design with the wires from the provided collection.
      * @param wires a collection of wires
@@ -120,16 +249,22 @@ public class ShortedDesign
         usedWires.clear();
     }
 
-    public Short placeShort(int x, int y, BELID id) {
-        Site site = d.getDevice().getSite(String.format("SLICE_X%dY%d", x, y));
+    public Short placeShort(int x, int y, LogicBELID id) {
+        Site site = siteGrid.getSite(x, y);
         return placeShort(site, id);
     }
 
-    public Short placeShort(Site site, BELID id) {
-        String belName0 = id + Short.getLUTPostfix(); //6LUT
-        String belName1 = id + Short.getRegInitPostfix(); //FF
-
-        return new Short(d, site, site, site.getBEL(belName0), site.getBEL(belName1));
+    public Short placeShort(Site site, LogicBELID id) {
+        String belName0 = family.getLUTName(id); //6LUT
+        String belName1 = family.getFFName(id); //FF
+
+        long start = System.nanoTime();
+        Short s = new Short(d, site, site, site.getBEL(belName0), site.getBEL(belName1), naming, sharedPrototypes);
+        ledger.add(s);
+        metrics.addPhaseTime(Phase.PLACEMENT, System.nanoTime() - start);
+        metrics.increment(Counter.SHORTS_PLACED);
+        metrics.increment(Counter.LUTS_CONSUMED);
+        return s;
     }
 
     /**
@@ -140,15 +275,31 @@ public class ShortedDesign
      */
     public List<Short> placeShortedSite(int x, int y) {
         List<Short> shorts = new ArrayList<>();
+        placeShortedSite(x, y, shorts::add);
+        return shorts;
+    }
 
-        Site site = d.getDevice().getSite(String.format("SLICE_X%dY%d", x, y));
-        for (BELID id : BELID.values()) {
+    /**
+     * places shorts on a site and passes each one to the sink as soon as it is placed.
+     * @param x x coordinate of a site
+     * @param y y coordinate of a site
+     * @param sink receives each short that is created.
+     */
+    public void placeShortedSite(int x, int y, Consumer<Short> sink) {
+        placeShortedSite(siteGrid.getSite(x, y), sink);
+    }
+
+    /**
+     * places shorts on every LUT-FF pair of a site and passes each one to the sink as soon as it is placed.
+     * @param site a logic site
+     * @param sink receives each short that is created.
+     */
+    public void placeShortedSite(Site site, Consumer<Short> sink) {
+        for (LogicBELID id : family.getBELIDs()) {
             Short s = placeShort(site, id);
-            shorts.add(s);
+            registerShort(s);
+            sink.accept(s);
         }
-
-        this.shorts.addAll(shorts);
-        return shorts;
     }
 
     /**
@@ -158,39 +309,305 @@ public class ShortedDesign
      * @return list of shorts that were created.
      */
     public List<Short> placeShortedTile(int x, int y) {
-        if (x % 2 == 1)
-            x = x - 1;
+        List<Short> shorts = new ArrayList<>();
+        placeShortedTile(x, y, shorts::add);
+        return shorts;
+    }
+
+    /**
+     * places shorts on a tile and passes each one to the sink as soon as it is placed.
+     * @param x x coordinate of a site in the tile
+     * @param y y coordinate of a site in the tile
+     * @param sink receives each short that is created.
+     */
+    public void placeShortedTile(int x, int y, Consumer<Short> sink) {
+        Tile tile = siteGrid.getSite(x, y).getTile();
+        for (int i = 0; i < tile.getSites().length; i++)
+            placeShortedSite(RapidWrightTools.getSiteFromTile(tile, i), sink);
+    }
 
-        List<Short> shorts = placeShortedSite(x, y);
-        shorts.addAll(placeShortedSite(x+1, y));
+    /**
+     * Keeps track of a newly placed short, unless shorts are not being retained.
+     */
+    private void registerShort(Short s) {
+        if (retainShorts)
+            registry.add(s);
+        else
+            droppedShorts = true;
+    }
 
-        return shorts;
+    /**
+     * Makes sure that every short placed by this class is retained, so that methods that act on every short of the
+     * design don't silently skip the ones that were only passed to a sink.
+     * @param operation what the caller was about to do, for the error message
+     */
+    private void checkAllShortsRetained(String operation) {
+        if (droppedShorts)
+            throw new IllegalStateException("ERROR: Can't " + operation + " because some shorts were not retained. "
+                    + "Pass the shorts received by the sink to ShortManifest, ShortNaming or "
+                    + "ConfigNetDistribution directly instead (see setRetainShorts)");
+    }
+
+    /**
+     * Sets whether this class keeps every short it creates. When shorts are not retained, they are only passed to the
+     * caller (e.g. through a sink) and can be garbage collected once the caller is done with them, so memory use only
+     * grows with the Design. Shorts that are not retained are not returned by getShorts or found by the registry,
+     * and once a short has been placed without being retained, the methods that act on every short of the design
+     * (routeShorts, routeShortsParallel, routeShortsMaxDensity, createShortConfig, writeShortManifest, writeNameMap,
+     * deleteShortsInRegion and deleteShortsInClockRegion) throw an IllegalStateException instead of silently leaving
+     * those shorts out.
+     * @param retainShorts true (the default) to keep every short, false to keep none
+     */
+    public void setRetainShorts(boolean retainShorts) {
+        this.retainShorts = retainShorts;
+    }
+
+    public boolean isRetainingShorts() {
+        return retainShorts;
     }
 
     public void createShortConfig() {
-        Net configNet = d.getNet("lut_config");
-        if (configNet == null)
-            configNet = d.createNet("lut_config");
-        for (Short s : this.shorts) {
-            s.connectConfigNet(configNet);
+        createShortConfig(new ConfigNetDistribution());
+    }
+
+    /**
+     * Connects the LUTs of the shorts to config nets, split up as described by the distribution (e.g. one net per
+     * clock region with at most a few thousand sinks each).
+     * @param distribution how the config signal is split into nets
+     * Fails if any short was not retained (see setRetainShorts).
+     * @return the config nets
+     */
+    public List<Net> createShortConfig(ConfigNetDistribution distribution) {
+        checkAllShortsRetained("create the short config");
+        try (ShortMetrics.Timer t = metrics.time(Phase.CONFIG)) {
+            return distribution.distribute(d, registry.getShorts());
         }
     }
 
     public Net routeShort(Short s, int numOfShorts) {
-        Net net = s.routeShort(d, usedWires, numOfShorts);
-        for(PIP pip : net.getPIPs())
-        {
-            usedWires.add(pip.getEndWire());
+        long start = System.nanoTime();
+        List<PIP> route = s.findRoute(usedWires, numOfShorts, metrics);
+        if (route == null) {
+            metrics.addPhaseTime(Phase.ROUTING, System.nanoTime() - start);
+            metrics.increment(Counter.ROUTE_FAILURES);
+            return null;
         }
+        Net net = s.commitRoute(route);
+        addUsedWires(route);
+        metrics.addPhaseTime(Phase.ROUTING, System.nanoTime() - start);
+        metrics.increment(Counter.SHORTS_ROUTED);
         return net;
     }
 
+    /**
+     * Deletes a short from the design. Its cells are unplaced, its net is unrouted and the wires the net used are
+     * released so that they can be used by other shorts. Shorts should be deleted through this method instead of
+     * Short.deleteShort() so that the used wires stay up to date.
+     * @param s the short to delete
+     */
+    public void deleteShort(Short s) {
+        releaseShort(s);
+        registry.remove(s);
+    }
+
+    /**
+     * Deletes many shorts from the design at once. Their cells are unplaced, their nets are unrouted, the wires the
+     * nets used are released and their LUTs are given back to the ledger. Removing a short from the registry doesn't
+     * depend on how many shorts the design has.
+     * @param toDelete the shorts to delete
+     * @return the number of shorts that were deleted
+     */
+    public int deleteShorts(Collection<Short> toDelete) {
+        for (Short s : toDelete)
+            releaseShort(s);
+        registry.removeAll(toDelete);
+        return toDelete.size();
+    }
+
+    /**
+     * Deletes every short placed in a region (see deleteShorts). Fails if any short was not retained (see
+     * setRetainShorts).
+     * @param region the sites to clear
+     * @return the number of shorts that were deleted
+     */
+    public int deleteShortsInRegion(SiteRegion region) {
+        checkAllShortsRetained("find the shorts of a region");
+        return deleteShorts(registry.getShortsInSites(region.getSites(d.getDevice())));
+    }
+
+    /**
+     * Deletes every short placed in a clock region (see deleteShorts). Fails if any short was not retained (see
+     * setRetainShorts).
+     * @param clockRegion the clock region to clear
+     * @return the number of shorts that were deleted
+     */
+    public int deleteShortsInClockRegion(ClockRegion clockRegion) {
+        checkAllShortsRetained("find the shorts of a clock region");
+        return deleteShorts(registry.getShortsInClockRegion(clockRegion));
+    }
+
+    private void releaseShort(Short s) {
+        releaseUsedWires(s.getShortNet().getPIPs());
+        ledger.remove(s);
+        s.deleteShort();
+    }
+
+    /**
+     * Routes all of the shorts in the design. The routes are found first and then added to their nets in one batch,
+     * so each net is only set and locked once. Fails if any short was not retained (see setRetainShorts).
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     */
     public void routeShorts(int numOfShorts) {
-        for (Short s : shorts) {
-            routeShort(s, numOfShorts);
+        checkAllShortsRetained("route every short");
+        try (ShortMetrics.Timer t = metrics.time(Phase.ROUTING)) {
+            List<Short> shorts = registry.getShorts();
+            ShortRouteBatch batch = new ShortRouteBatch(shorts.size());
+            UsedWireSet pendingWires = new UsedWireSet(usedWires);
+            for (Short s : shorts) {
+                List<PIP> route = s.findRoute(pendingWires, numOfShorts, metrics);
+                if (route == null) {
+                    metrics.increment(Counter.ROUTE_FAILURES);
+                    continue;
+                }
+                for (PIP pip : route)
+                    pendingWires.add(pip.getTile(), pip.getEndWireIndex());
+                batch.add(s, route);
+            }
+            commitBatch(batch);
         }
     }
 
+    /**
+     * Commits a batch of routes to the design and records the routed PIPs as used wires without scanning the nets
+     * again.
+     * @param batch the routes to commit
+     */
+    public void commitBatch(ShortRouteBatch batch) {
+        batch.commit(usedWires);
+        metrics.add(Counter.SHORTS_ROUTED, batch.size());
+    }
+
+    /**
+     * Routes all of the shorts in the design in parallel on the common fork-join pool. The result is the same as
+     * routeShorts(numOfShorts).
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     */
+    public void routeShortsParallel(int numOfShorts) {
+        routeShortsParallel(numOfShorts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Routes all of the shorts in the design in parallel. Shorts are partitioned by the switchbox they are routed
+     * through, since shorts in different switchboxes never compete for the same wires. Each partition is routed on
+     * its own thread against the wires used before routing started, and the routes are then added to the nets in the
+     * same order as routeShorts(numOfShorts), so the resulting design is identical to the serial one. Fails if any
+     * short was not retained (see setRetainShorts).
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @param pool the pool to route the partitions on
+     */
+    public void routeShortsParallel(int numOfShorts, ForkJoinPool pool) {
+        checkAllShortsRetained("route every short");
+        try (ShortMetrics.Timer t = metrics.time(Phase.ROUTING)) {
+            routeShortsParallel(registry.getShorts(), numOfShorts, pool);
+        }
+    }
+
+    private void routeShortsParallel(List<Short> shorts, int numOfShorts, ForkJoinPool pool) {
+        PIP[][] routes = new PIP[shorts.size()][];
+        Map<Tile, List<Integer>> partitions = ShortAssignmentSolver.partitionBySwitchbox(shorts);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (List<Integer> partition : partitions.values()) {
+            tasks.add(() -> {
+                UsedWireSet partitionWires = new UsedWireSet(usedWires);
+                for (int i : partition) {
+                    List<PIP> route = shorts.get(i).findRoute(partitionWires, numOfShorts, metrics);
+                    if (route == null) {
+                        metrics.increment(Counter.ROUTE_FAILURES);
+                        continue;
+                    }
+                    for (PIP pip : route)
+                        partitionWires.add(pip.getTile(), pip.getEndWireIndex());
+                    routes[i] = route.toArray(new PIP[0]);
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error! Could not route shorts in parallel", e);
+        }
+
+        // commits the routes in the same order as the serial router
+        ShortRouteBatch batch = new ShortRouteBatch(shorts.size());
+        for (int i = 0; i < shorts.size(); i++) {
+            if (routes[i] != null)
+                batch.add(shorts.get(i), Arrays.asList(routes[i]));
+        }
+        commitBatch(batch);
+    }
+
+
+    /**
+     * Routes all of the shorts in the design so that as many shorts as possible are made in each switchbox (see
+     * ShortAssignmentSolver). Every LUT-FF pair that is routed gets at least one short.
+     * @param numOfShorts the most shorts to create for each LUT-FF pair
+     * @return the result of each short, in the same order as getShorts(). ShortRouteResult.countShorts gives the total
+     *         number of shorts made.
+     */
+    public List<ShortRouteResult> routeShortsMaxDensity(int numOfShorts) {
+        return routeShortsMaxDensity(numOfShorts, 1);
+    }
+
+    /**
+     * Routes all of the shorts in the design so that as many shorts as possible are made in each switchbox while every
+     * routed LUT-FF pair gets at least minPerPair shorts (see ShortAssignmentSolver for how the pairs that can't get
+     * the minimum are chosen). Fails if any short was not retained (see setRetainShorts).
+     * @param numOfShorts the most shorts to create for each LUT-FF pair
+     * @param minPerPair the fewest shorts a LUT-FF pair may be routed with
+     * @return the result of each short, in the same order as getShorts(). ShortRouteResult.countShorts gives the total
+     *         number of shorts made.
+     */
+    public List<ShortRouteResult> routeShortsMaxDensity(int numOfShorts, int minPerPair) {
+        checkAllShortsRetained("route every short");
+        try (ShortMetrics.Timer t = metrics.time(Phase.ROUTING)) {
+            ShortAssignmentSolver solver = new ShortAssignmentSolver(numOfShorts, minPerPair);
+            return commitResults(solver.solve(registry.getShorts(), usedWires));
+        }
+    }
+
+    /**
+     * Routes all of the shorts in the design like routeShortsMaxDensity(numOfShorts, minPerPair), solving the
+     * switchboxes in parallel. The routes are committed in the same order, so the resulting design is identical to the
+     * serial one.
+     * @param numOfShorts the most shorts to create for each LUT-FF pair
+     * @param minPerPair the fewest shorts a LUT-FF pair may be routed with
+     * @param pool the pool to solve the switchboxes on
+     * @return the result of each short, in the same order as getShorts()
+     */
+    public List<ShortRouteResult> routeShortsMaxDensity(int numOfShorts, int minPerPair, ForkJoinPool pool) {
+        checkAllShortsRetained("route every short");
+        try (ShortMetrics.Timer t = metrics.time(Phase.ROUTING)) {
+            ShortAssignmentSolver solver = new ShortAssignmentSolver(numOfShorts, minPerPair);
+            return commitResults(solver.solve(registry.getShorts(), usedWires, pool));
+        }
+    }
+
+    private List<ShortRouteResult> commitResults(List<ShortRouteResult> results) {
+        ShortRouteBatch batch = new ShortRouteBatch(results.size());
+        for (ShortRouteResult result : results) {
+            metrics.add(Counter.CANDIDATES_EXAMINED, result.getShort().getCandidates().size());
+            if (result.isRouted())
+                batch.add(result.getShort(), result.getRoute());
+            else
+                metrics.increment(Counter.ROUTE_FAILURES);
+        }
+        commitBatch(batch);
+        return results;
+    }
 
     public List<Short> shortSite(int x, int y)
     {
@@ -199,12 +616,37 @@ public class ShortedDesign
 
     public List<Short> shortSite(int x, int y, int numOfShorts)
     {
-        List<Short> shorts = placeShortedSite(x, y);
+        List<Short> shorts = new ArrayList<>();
+        shortSite(x, y, numOfShorts, shorts::add);
+        return shorts;
+    }
+
+    /**
+     * Places and routes the shorts of a site, passing each one to the sink once it has been routed.
+     * @param x x coordinate of a site
+     * @param y y coordinate of a site
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @param sink receives each short once it has been routed
+     */
+    public void shortSite(int x, int y, int numOfShorts, Consumer<Short> sink)
+    {
+        shortSite(siteGrid.getSite(x, y), numOfShorts, sink);
+    }
+
+    /**
+     * Places and routes the shorts of a site, passing each one to the sink once it has been routed.
+     * @param site a logic site
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @param sink receives each short once it has been routed
+     */
+    public void shortSite(Site site, int numOfShorts, Consumer<Short> sink)
+    {
+        List<Short> shorts = new ArrayList<>(family.getPairsPerSite());
+        placeShortedSite(site, shorts::add);
         for (Short s : shorts) {
             routeShort(s, numOfShorts);
+            sink.accept(s);
         }
-
-        return shorts;
     }
 
     public List<Short> shortTile(int x, int y)
@@ -245,32 +687,257 @@ public class ShortedDesign
      */
     public List<Short> createShortedRegion(int xMin, int xMax, int yMin, int yMax, int numOfShorts)
     {
-
-        int lutCount = countLut6(d);
         List<Short> shorts = new ArrayList<>();
+        createShortedRegion(xMin, xMax, yMin, yMax, numOfShorts, shorts::add);
+        return shorts;
+    }
 
-        outerLoop:
-        for(int y = yMin; y <= yMax; y++)
-        {
-            for (int x = xMin; x <= xMax; x++)
+    /**
+     * Creates a region of shorts in the region bounded by the parameters without collecting them in a list. Each short
+     * is passed to the sink as soon as it has been routed, so that large regions can be generated without holding on
+     * to every short (see setRetainShorts).
+     * @param xMin minimum x bound for short region
+     * @param xMax maximum x bound for short region
+     * @param yMin minimum y bound for short region
+     * @param yMax maximum y bound for short region
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @param sink receives each short once it has been routed
+     * @return the number of shorts created
+     */
+    public int createShortedRegion(int xMin, int xMax, int yMin, int yMax, int numOfShorts, Consumer<Short> sink)
+    {
+        int lutsPerSite = family.getPairsPerSite();
+        int shortCount = 0;
+
+        // a rectangle is read straight from the grid, without compiling a SiteRegion
+        try (ShortMetrics.Timer t = metrics.time(Phase.REGION)) {
+            for (Site site : siteGrid.getSitesInRange(xMin, xMax, yMin, yMax))
             {
-                Site site = d.getDevice().getSite(String.format("SLICE_X%dY%d", x, y));
-                if (site != null)
-                {
-                    shorts.addAll(shortSite(x, y, numOfShorts));
-                    lutCount += 4;
-                    if (lutCount > (maxLuts - 4))
-                        return shorts;
-                }
+                if (ledger.getRemainingLuts() < lutsPerSite)
+                    break;
+                shortSite(site, numOfShorts, sink);
+                shortCount += lutsPerSite;
+            }
+        }
 
+        return shortCount;
+    }
+
+    /**
+     * Creates shorts on every logic site of a region (e.g. a union of rectangles and clock regions with exclusion
+     * zones). The sites are visited in scanline order, the same order as the rectangular createShortedRegion.
+     * @param region the sites to short
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @return the shorts that were created
+     */
+    public List<Short> createShortedRegion(SiteRegion region, int numOfShorts)
+    {
+        List<Short> shorts = new ArrayList<>();
+        createShortedRegion(region, numOfShorts, shorts::add);
+        return shorts;
+    }
+
+    /**
+     * Creates shorts on every logic site of a region, passing each one to the sink as soon as it has been routed.
+     * @param region the sites to short
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @param sink receives each short once it has been routed
+     * @return the number of shorts created
+     */
+    public int createShortedRegion(SiteRegion region, int numOfShorts, Consumer<Short> sink)
+    {
+        int lutsPerSite = family.getPairsPerSite();
+        int shortCount = 0;
+
+        try (ShortMetrics.Timer t = metrics.time(Phase.REGION)) {
+            for (Site site : region.getSites(d.getDevice()))
+            {
+                if (ledger.getRemainingLuts() < lutsPerSite)
+                    return shortCount;
+                shortSite(site, numOfShorts, sink);
+                shortCount += lutsPerSite;
             }
         }
 
+        return shortCount;
+    }
+
+    /**
+     * Creates shorts on every logic site of a region, planning the shorts of each clock region in parallel on the
+     * common fork-join pool (see createShortedRegionParallel(SiteRegion, int, ForkJoinPool, Consumer)).
+     * @param region the sites to short
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @return the shorts that were created
+     */
+    public List<Short> createShortedRegionParallel(SiteRegion region, int numOfShorts)
+    {
+        List<Short> shorts = new ArrayList<>();
+        createShortedRegionParallel(region, numOfShorts, ForkJoinPool.commonPool(), shorts::add);
         return shorts;
     }
 
-    public List<Short> getShorts()
+    /**
+     * Creates shorts on every logic site of a region, planning the shorts of each clock region in parallel. Each clock
+     * region is planned on its own thread from device data only (see ShortPlanner.planParallel), so the threads never
+     * touch the Design. The plan is then applied serially (see applyPlan).
+     * @param region the sites to short
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @param pool the pool to plan the clock regions on
+     * @param sink receives each short once it has been routed
+     * @return the number of shorts created
+     */
+    public int createShortedRegionParallel(SiteRegion region, int numOfShorts, ForkJoinPool pool,
+                                           Consumer<Short> sink)
+    {
+        try (ShortMetrics.Timer t = metrics.time(Phase.REGION)) {
+            return applyPlan(getPlanner(numOfShorts).planParallel(region, pool), sink);
+        }
+    }
+
+    /**
+     * Gets a planner for the device of this design that plans around the wires this design already uses. The used
+     * wires must not change while the planner is making a plan.
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @return the planner
+     */
+    public ShortPlanner getPlanner(int numOfShorts)
+    {
+        return new ShortPlanner(d.getDevice(), usedWires, numOfShorts, metrics);
+    }
+
+    /**
+     * Plans shorts on every logic site of a region without changing the design
+     * @param region the sites to short
+     * @param numOfShorts how many shorts to create for each LUT-FF pair
+     * @return the plan
+     */
+    public ShortPlan planRegion(SiteRegion region, int numOfShorts)
     {
+        return getPlanner(numOfShorts).plan(region);
+    }
+
+    /**
+     * Places the shorts of a plan in the design and commits their routes in one batch
+     * @param plan a plan made for the device of this design
+     * @return the shorts that were created
+     */
+    public List<Short> applyPlan(ShortPlan plan)
+    {
+        List<Short> shorts = new ArrayList<>(plan.size());
+        applyPlan(plan, shorts::add);
         return shorts;
     }
+
+    /**
+     * Places the shorts of a plan in the design and commits their routes in one batch. Sites are applied in the order
+     * of the plan and stop once the design runs out of LUTs, the same way createShortedRegion does. The cells and nets
+     * are created in plan order, so names (including compact IDs) don't depend on how the plan was made. Any route
+     * whose wires have been used since the plan was made (by the design or by an earlier short of the plan) is routed
+     * again.
+     * @param plan a plan made for the device of this design
+     * @param sink receives each short once its route has been committed
+     * @return the number of shorts created
+     */
+    public int applyPlan(ShortPlan plan, Consumer<Short> sink)
+    {
+        if (!plan.getDeviceName().equals(d.getDevice().getName()))
+            throw new RuntimeException("ERROR: The plan was made for " + plan.getDeviceName() + ", not "
+                    + d.getDevice().getName());
+
+        int numOfShorts = plan.getNumOfShorts();
+        int lutsPerSite = family.getPairsPerSite();
+        int shortCount = 0;
+        UsedWireSet mergedWires = new UsedWireSet(usedWires);
+        ShortRouteBatch batch = new ShortRouteBatch(plan.size());
+        List<Short> placed = new ArrayList<>(plan.size());
+
+        Site currentSite = null;
+        for (int i = 0; i < plan.size(); i++) {
+            Site site = plan.getSite(i);
+            if (site != currentSite) {
+                currentSite = site;
+                if (ledger.getRemainingLuts() < lutsPerSite)
+                    break;
+                shortCount += lutsPerSite;
+            }
+
+            Short s = placeShort(site, plan.getBELID(i));
+            registerShort(s);
+            placed.add(s);
+
+            List<PIP> route = plan.getRoute(i);
+            if (route != null && isAnyEndWireUsed(route, mergedWires))
+                route = s.findRoute(mergedWires, numOfShorts, metrics);
+            if (route == null) {
+                metrics.increment(Counter.ROUTE_FAILURES);
+                continue;
+            }
+            for (PIP pip : route)
+                mergedWires.add(pip.getTile(), pip.getEndWireIndex());
+            batch.add(s, route);
+        }
+
+        commitBatch(batch);
+        for (Short s : placed)
+            sink.accept(s);
+        return shortCount;
+    }
+
+    private static boolean isAnyEndWireUsed(List<PIP> route, UsedWireSet wires)
+    {
+        for (PIP pip : route) {
+            if (wires.contains(pip.getTile(), pip.getEndWireIndex()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return every short retained by this design, in the order they were created. The list can't be modified and
+     *         doesn't change when shorts are placed or deleted later; use deleteShort or deleteShorts to remove shorts.
+     */
+    public List<Short> getShorts()
+    {
+        return registry.getShorts();
+    }
+
+    /**
+     * @return the shorts retained by this design, indexed by the tile, site and clock region they were placed in
+     */
+    public ShortRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    /**
+     * @return the family of the device this design targets
+     */
+    public DeviceFamily getFamily()
+    {
+        return family;
+    }
+
+    /**
+     * @return the ledger that keeps count of the LUTs and FFs used in the design
+     */
+    public ResourceLedger getLedger()
+    {
+        return ledger;
+    }
+
+    /**
+     * @return the phase times and counters of the short pipeline for this design
+     */
+    public ShortMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @return the number of 6LUTs that can still be used for shorts
+     */
+    public int getRemainingLuts()
+    {
+        return ledger.getRemainingLuts();
+    }
 }